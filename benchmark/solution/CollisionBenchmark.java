@@ -0,0 +1,113 @@
+package solution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Robot.isValid and Box.isValid against every obstacle in a problem's workspace, both with a list
+ * of obstacles and with an ObstacleGrid. The robots and boxes are placed at random, so most
+ * checks in a cluttered workspace fail, as most RRT samples do.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+    /**
+     * The number of robots and boxes checked, cycled through
+     */
+    private static final int SAMPLES = 1024;
+
+    /**
+     * The problem file
+     */
+    @Param({"data/input.txt", "data/input4.txt"})
+    public String problem;
+
+    /**
+     * The obstacles
+     */
+    private ArrayList<Box> obstacles;
+
+    /**
+     * The obstacles, indexed
+     */
+    private ObstacleGrid obstacleGrid;
+
+    /**
+     * The robots checked
+     */
+    private Robot[] robots;
+
+    /**
+     * The boxes checked
+     */
+    private Box[] boxes;
+
+    /**
+     * The next robot and box to check
+     */
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        Workspace workspace = Scenarios.load(problem).getContext().getWorkspace();
+        double width = workspace.getRobotWidth();
+        SplittableRandom random = new SplittableRandom(Scenarios.SEED);
+
+        obstacles = workspace.getAllObstacles();
+        obstacleGrid = workspace.getAllObstacleGrid();
+        robots = Scenarios.randomRobots(SAMPLES, width, random);
+        boxes = new Box[SAMPLES];
+
+        for (int i = 0; i < SAMPLES; i++) {
+            boxes[i] = new Box(random.nextDouble(1 - width), random.nextDouble(1 - width), width,
+                    width
+            );
+        }
+    }
+
+    @Benchmark
+    public boolean robotIsValidList() {
+        next = (next + 1) % SAMPLES;
+
+        return robots[next].isValid(obstacles);
+    }
+
+    @Benchmark
+    public boolean robotIsValidGrid() {
+        next = (next + 1) % SAMPLES;
+
+        return robots[next].isValid(obstacleGrid);
+    }
+
+    @Benchmark
+    public boolean boxIsValidList() {
+        next = (next + 1) % SAMPLES;
+
+        return boxes[next].isValid(obstacles);
+    }
+
+    @Benchmark
+    public boolean boxIsValidGrid() {
+        next = (next + 1) % SAMPLES;
+
+        return boxes[next].isValid(obstacleGrid);
+    }
+}
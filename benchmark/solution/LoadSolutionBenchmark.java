@@ -0,0 +1,80 @@
+package solution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import problem.ProblemSpec;
+import problem.SolutionPath;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ProblemSpec.loadSolution on a solution file written once, for a problem solved with a fixed
+ * seed, read both a block at a time and memory-mapped
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadSolutionBenchmark {
+    /**
+     * The problem file
+     */
+    @Param({"data/input.txt", "data/input4.txt"})
+    public String problem;
+
+    /**
+     * Whether to memory-map the solution file
+     */
+    @Param({"false", "true"})
+    public boolean memoryMapped;
+
+    /**
+     * The problem, loaded once
+     */
+    private ProblemSpec ps;
+
+    /**
+     * The solution file
+     */
+    private File solutionFile;
+
+    @Setup
+    public void setUp() throws IOException, BoxLostException {
+        ps = new ProblemSpec();
+        ps.loadProblem(problem);
+
+        solutionFile = File.createTempFile("solution", ".txt");
+
+        try (Writer writer = Files.newBufferedWriter(solutionFile.toPath())) {
+            Scenarios.solve(problem).writeSolution(writer);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        solutionFile.delete();
+    }
+
+    @Benchmark
+    public SolutionPath loadSolution() throws IOException {
+        ps.loadSolution(solutionFile.getPath(), memoryMapped);
+
+        return ps.getSolutionPath();
+    }
+}
@@ -0,0 +1,95 @@
+package solution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The nearest node lookup every RRT expansion makes (RRT.nearestNode), on trees of robot states
+ * up to the largest an RRT grows to
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestNodeBenchmark {
+    /**
+     * The number of states looked up, cycled through
+     */
+    private static final int QUERIES = 1024;
+
+    /**
+     * The width of the robots
+     */
+    private static final double WIDTH = 0.05;
+
+    /**
+     * The number of nodes in the tree
+     */
+    @Param({"100", "1000", "3000"})
+    public int nodes;
+
+    /**
+     * The index used, "kd" for KdTreeNearestNodeIndex or "linear" for LinearNearestNodeIndex
+     */
+    @Param({"kd", "linear"})
+    public String index;
+
+    /**
+     * The index over the tree's nodes
+     */
+    private NearestNodeIndex<RobotState, RobotAction> nearestNodeIndex;
+
+    /**
+     * The states looked up
+     */
+    private RobotState[] queries;
+
+    /**
+     * The next state to look up
+     */
+    private int next = 0;
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(Scenarios.SEED);
+
+        CompactTree<RobotState, RobotAction> tree = new CompactTree<>(new RobotStateCodec(WIDTH));
+
+        nearestNodeIndex = index.equals("kd") ? new KdTreeNearestNodeIndex<>(tree) :
+                new LinearNearestNodeIndex<>(tree);
+
+        // Only the states matter to the index, so hang every node off the root
+        for (Robot robot : Scenarios.randomRobots(nodes, WIDTH, random)) {
+            nearestNodeIndex.add(tree.add(tree.size() == 0 ? -1 : 0, new RobotState(robot)));
+        }
+
+        queries = new RobotState[QUERIES];
+
+        Robot[] robots = Scenarios.randomRobots(QUERIES, WIDTH, random);
+
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = new RobotState(robots[i]);
+        }
+    }
+
+    @Benchmark
+    public int nearest() {
+        next = (next + 1) % QUERIES;
+
+        return nearestNodeIndex.nearest(queries[next]);
+    }
+}
@@ -0,0 +1,49 @@
+package solution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outputter.writeSolution for a problem solved once with a fixed seed. The text is formatted as
+ * usual but thrown away, so this measures the outputter rather than the disk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OutputterBenchmark {
+    /**
+     * The problem file
+     */
+    @Param({"data/input.txt", "data/input4.txt"})
+    public String problem;
+
+    /**
+     * Holds the solution
+     */
+    private Outputter outputter;
+
+    @Setup
+    public void setUp() throws IOException {
+        outputter = Scenarios.solve(problem);
+    }
+
+    @Benchmark
+    public void writeSolution() throws IOException, BoxLostException {
+        outputter.writeSolution(Scenarios.DISCARD);
+    }
+}
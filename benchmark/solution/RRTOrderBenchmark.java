@@ -0,0 +1,87 @@
+package solution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GoalBoxSolver.calculateRRTOrder on goal box paths of a problem that can be ordered, found once
+ * with a fixed seed
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RRTOrderBenchmark {
+    /**
+     * The problem file
+     */
+    @Param({"data/input.txt", "data/input4.txt"})
+    public String problem;
+
+    /**
+     * The solver
+     */
+    private GoalBoxSolver solver;
+
+    /**
+     * A solved RRT for each goal box
+     */
+    private ArrayList<GoalBoxRRT> goalBoxRRTs;
+
+    @Setup
+    public void setUp() throws IOException {
+        solver = Scenarios.load(problem);
+
+        ArrayList<MoveableBox> goalPositions = Scenarios.loadGoalPositions(problem);
+        SplittableRandom random = new SplittableRandom(Scenarios.SEED);
+
+        // Search again until the paths can be ordered, like the solver does, so the benchmark
+        // measures a successful ordering
+        for (int attempt = 0; attempt < Scenarios.MAX_ATTEMPTS; attempt++) {
+            goalBoxRRTs = new ArrayList<>();
+
+            for (int i = 0; i < goalPositions.size(); i++) {
+                GoalBoxRRT rrt = new GoalBoxRRT(solver.getContext(), solver.getGoalBoxes().get(i),
+                        goalPositions.get(i), random.split()
+                );
+
+                if (!rrt.solve()) {
+                    throw new IllegalStateException("No path for goal box " + i + " in " +
+                            problem);
+                }
+
+                goalBoxRRTs.add(rrt);
+            }
+
+            try {
+                solver.calculateRRTOrder(goalBoxRRTs);
+                return;
+            } catch (NoRRTOrderException e) {
+                // Try other paths
+            }
+        }
+
+        throw new IllegalStateException("No order for the goal boxes in " + problem);
+    }
+
+    @Benchmark
+    public ArrayList<GoalBoxRRT> calculateRRTOrder() throws NoRRTOrderException {
+        return solver.calculateRRTOrder(goalBoxRRTs);
+    }
+}
@@ -0,0 +1,119 @@
+package solution;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checking an RRT edge with RobotState.tryAction: moves of up to the longest RRT step from valid
+ * robot states, against the static obstacles. With a list, every obstacle is checked at every
+ * step. With an ObstacleGrid, the continuous check is tried first and only nearby obstacles are
+ * checked.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RobotActionBenchmark {
+    /**
+     * The number of moves tried, cycled through
+     */
+    private static final int SAMPLES = 256;
+
+    /**
+     * The problem file
+     */
+    @Param({"data/input.txt", "data/input4.txt"})
+    public String problem;
+
+    /**
+     * The obstacles
+     */
+    private ArrayList<Box> obstacles;
+
+    /**
+     * The obstacles, indexed
+     */
+    private ObstacleGrid obstacleGrid;
+
+    /**
+     * How finely the moves are checked
+     */
+    private StepSize stepSize;
+
+    /**
+     * The states moved from, all valid
+     */
+    private RobotState[] states;
+
+    /**
+     * The moves, as dx, dy and dtheta
+     */
+    private double[][] moves;
+
+    /**
+     * The next move to try
+     */
+    private int next = 0;
+
+    @Setup
+    public void setUp() throws IOException {
+        PlanningContext context = Scenarios.load(problem).getContext();
+        Workspace workspace = context.getWorkspace();
+        SplittableRandom random = new SplittableRandom(Scenarios.SEED);
+
+        obstacles = workspace.getStaticObstacles();
+        obstacleGrid = workspace.getStaticObstacleGrid();
+        stepSize = context.getStepSize();
+        states = new RobotState[SAMPLES];
+        moves = new double[SAMPLES][];
+
+        for (int i = 0; i < SAMPLES; i++) {
+            // Only valid states are moved from in an RRT
+            do {
+                states[i] = new RobotState(Scenarios.randomRobots(1, workspace.getRobotWidth(),
+                        random
+                )[0]);
+            } while (!states[i].isValid(obstacleGrid));
+
+            moves[i] = new double[] {
+                    random.nextDouble(-RRT.MAX_DISTANCE, RRT.MAX_DISTANCE),
+                    random.nextDouble(-RRT.MAX_DISTANCE, RRT.MAX_DISTANCE),
+                    random.nextDouble(-Math.PI / 2, Math.PI / 2)
+            };
+        }
+    }
+
+    @Benchmark
+    public TreeNode<RobotState, RobotAction> tryActionList() {
+        next = (next + 1) % SAMPLES;
+
+        return states[next].tryAction(moves[next][0], moves[next][1], moves[next][2], null,
+                obstacles, stepSize
+        );
+    }
+
+    @Benchmark
+    public TreeNode<RobotState, RobotAction> tryActionGrid() {
+        next = (next + 1) % SAMPLES;
+
+        return states[next].tryAction(moves[next][0], moves[next][1], moves[next][2], null,
+                obstacleGrid, stepSize
+        );
+    }
+}
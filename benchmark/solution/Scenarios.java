@@ -0,0 +1,133 @@
+package solution;
+
+import problem.ProblemSpec;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * The fixed problems and seeds the benchmarks run on. Problem files are given relative to the
+ * repository root, which the benchmarks are run from.
+ */
+final class Scenarios {
+    /**
+     * The seed every benchmark plans and samples with. The problems solve within a few attempts
+     * with it.
+     */
+    static final long SEED = 2L;
+
+    /**
+     * The number of times to run the solver before giving up on a problem
+     */
+    static final int MAX_ATTEMPTS = 100;
+
+    /**
+     * A writer that throws away everything written to it
+     */
+    static final Writer DISCARD = new Writer() {
+        @Override
+        public void write(char[] buffer, int offset, int length) {}
+
+        @Override
+        public void flush() {}
+
+        @Override
+        public void close() {}
+    };
+
+    /**
+     * Private constructor
+     */
+    private Scenarios() {}
+
+    /**
+     * Load a problem into a solver with a fixed seed
+     *
+     * @param problemFile the problem file
+     *
+     * @return the solver
+     *
+     * @throws IOException if the file could not be loaded
+     */
+    static GoalBoxSolver load(String problemFile) throws IOException {
+        return new GoalBoxSolver(problemFile, new PlanningContext(SEED));
+    }
+
+    /**
+     * Load the goal positions of the goal boxes in a problem
+     *
+     * @param problemFile the problem file
+     *
+     * @return the goal positions, in the same order as the goal boxes
+     *
+     * @throws IOException if the file could not be loaded
+     */
+    static ArrayList<MoveableBox> loadGoalPositions(String problemFile) throws IOException {
+        ProblemSpec ps = new ProblemSpec();
+        ps.loadProblem(problemFile);
+
+        ArrayList<MoveableBox> goalPositions = new ArrayList<>();
+
+        for (Point2D point : ps.getMovingBoxEndPositions()) {
+            goalPositions.add(new MoveableBox(point, ps.getRobotWidth()));
+        }
+
+        return goalPositions;
+    }
+
+    /**
+     * Solve a problem the same way as Main, with a fixed seed
+     *
+     * @param problemFile the problem file
+     *
+     * @return an outputter holding the solution
+     *
+     * @throws IOException if the file could not be loaded
+     */
+    static Outputter solve(String problemFile) throws IOException {
+        GoalBoxSolver solver = load(problemFile);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            try {
+                Outputter outputter = new Outputter(solver.solve(),
+                        solver.getMoveableObstacles(), solver.getGoalBoxes(), solver.getContext()
+                );
+
+                // Make sure no box gets lost before handing it over
+                outputter.writeSolution(DISCARD);
+
+                return outputter;
+            } catch (NoPathException e) {
+                // The solver has discarded the part that failed, try again
+            } catch (BoxLostException e) {
+                solver.repairFromAction(e.getActionIndex());
+            }
+        }
+
+        throw new IllegalStateException("Couldn't solve " + problemFile);
+    }
+
+    /**
+     * Create robots at random positions and orientations in the workspace
+     *
+     * @param count the number of robots
+     * @param width the width of the robots
+     * @param random the generator to place them with
+     *
+     * @return the robots
+     */
+    static Robot[] randomRobots(int count, double width, SplittableRandom random) {
+        Robot[] robots = new Robot[count];
+
+        for (int i = 0; i < count; i++) {
+            robots[i] = new Robot(random.nextDouble(), random.nextDouble(),
+                    random.nextDouble(2 * Math.PI), width
+            );
+        }
+
+        return robots;
+    }
+}
@@ -3,6 +3,7 @@ package problem;
 import java.awt.*;
 import java.awt.geom.Point2D;
 import java.io.BufferedReader;
+import java.io.EOFException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -52,6 +53,9 @@ public class ProblemSpec {
 	public List<List<Box>> movingBoxPath = new ArrayList<>();
     public List<List<Box>> movingObstaclePath = new ArrayList<>();
 
+	/** The loaded solution as arrays of coordinates, or null if none is loaded **/
+	public SolutionPath solutionPath;
+
 	
 	/** Returns the width of the robot **/		
 	public double getRobotWidth() {return robotWidth;}
@@ -77,6 +81,9 @@ public class ProblemSpec {
 	/** Returns the moving obstacle path **/		
 	public List<List<Box>> getMovingObstaclePath() { return movingObstaclePath; }
 
+	/** Returns the loaded solution as arrays of coordinates **/
+	public SolutionPath getSolutionPath() { return solutionPath; }
+
 	public List<Point2D> getMovingBoxEndPositions() { return movingBoxEndPositions; }
 
 	public boolean getProblemLoaded() { return problemLoaded; }
@@ -187,61 +194,141 @@ public class ProblemSpec {
 	 *             specifications.
 	 */
     public void loadSolution(String filename) throws IOException {
+        loadSolution(filename, false);
+    }
+
+    /**
+	 * Loads a solution from a solution text file. The steps are kept as arrays of
+	 * coordinates, and the robot, moving box and moving obstacle paths are views
+	 * over them.
+	 * 
+	 * @param filename
+	 *            the path of the text file to load.
+	 * @param memoryMapped
+	 *            whether to memory-map the file rather than read it a block at
+	 *            a time.
+	 * @throws IOException
+	 *             if the text file doesn't exist or doesn't meet the assignment
+	 *             specifications.
+	 */
+    public void loadSolution(String filename, boolean memoryMapped) throws IOException {
         solutionLoaded = false;
         if (!problemLoaded) {
             System.out.println("Problem not loaded, exiting!");
             System.exit(4);
         }
 
-        BufferedReader input = new BufferedReader(new FileReader(filename));
-        String line;
-        int lineNo = 0;
-        Scanner s;
+        SolutionReader input = new SolutionReader(filename, memoryMapped);
         try {
-            // line 1
-            line = input.readLine();
-            lineNo++;
-            s = new Scanner(line);
-            int p = s.nextInt();
-            s.close();
-
-            for (int i = 0; i < p; i++) {
-                line = input.readLine();
-                lineNo++;
-                s = new Scanner(line);
-                robotPath.add(new RobotConfig(
-                        new Point2D.Double(s.nextDouble(),s.nextDouble()),
-                                s.nextDouble()));
-                List<Box> movingBoxState = new ArrayList<>();
-                for (int j = 0; j < numMovingBoxes; j++) {
-                    movingBoxState.add(new MovingBox(new Point2D.Double(s.nextDouble() - robotWidth/2,
-																		s.nextDouble() - robotWidth/2),
-																		robotWidth));
-                }
-                movingBoxPath.add(movingBoxState);
-                List<Box> movingObstacleState = new ArrayList<>();
-                for (int k = 0; k < numMovingObstacles; k++) {
-                    movingObstacleState.add(new MovingObstacle(new Point2D.Double(s.nextDouble() - movingObstacles.get(k).getWidth() / 2,
-							s.nextDouble() - movingObstacles.get(k).getWidth() / 2),
-                            movingObstacles.get(k).getWidth()));
-                }
-                movingObstaclePath.add(movingObstacleState);
-                s.close();
-            }
-            solutionLoaded = true;
-        } catch (InputMismatchException e) {
-            System.out.format("Invalid number format on input file - line %d: %s", lineNo,
-                    e.getMessage());
+            setSolutionPath(input.read(robotWidth, getMovingObstacleWidths(),
+                    numMovingBoxes));
+        } catch (NoSuchElementException | EOFException e) {
+            exitOnInvalidSolution(input, e);
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+	 * Opens a solution text file to be read a step at a time with
+	 * readSolutionStep. Only the last two steps are kept, so the robot, moving
+	 * box and moving obstacle paths can only be looked at for the step just
+	 * read and the one before it.
+	 * 
+	 * @param filename
+	 *            the path of the text file to open.
+	 * @param memoryMapped
+	 *            whether to memory-map the file rather than read it a block at
+	 *            a time.
+	 * @return the open file, which the caller must close.
+	 * @throws IOException
+	 *             if the text file doesn't exist or doesn't meet the assignment
+	 *             specifications.
+	 */
+    public SolutionReader openSolution(String filename, boolean memoryMapped)
+            throws IOException {
+        solutionLoaded = false;
+        if (!problemLoaded) {
+            System.out.println("Problem not loaded, exiting!");
+            System.exit(4);
+        }
+
+        SolutionReader input = new SolutionReader(filename, memoryMapped);
+        try {
+            setSolutionPath(new SolutionPath(input.readStepCount(), 2, robotWidth,
+                    getMovingObstacleWidths(), numMovingBoxes));
+        } catch (NoSuchElementException | EOFException e) {
+            input.close();
+            exitOnInvalidSolution(input, e);
+        }
+        return input;
+    }
+
+    /**
+	 * Reads the next step of a solution opened with openSolution.
+	 * 
+	 * @param input
+	 *            the open file.
+	 * @param step
+	 *            the step being read, counting from 0.
+	 * @throws IOException
+	 *             if the text file can't be read or doesn't meet the
+	 *             assignment specifications.
+	 */
+    public void readSolutionStep(SolutionReader input, int step) throws IOException {
+        try {
+            input.readStep(solutionPath, step);
+        } catch (NoSuchElementException | EOFException e) {
+            input.close();
+            exitOnInvalidSolution(input, e);
+        }
+    }
+
+    /**
+	 * Makes the robot, moving box and moving obstacle paths views over a
+	 * solution.
+	 * 
+	 * @param path
+	 *            the solution.
+	 */
+    private void setSolutionPath(SolutionPath path) {
+        solutionPath = path;
+        robotPath = path.getRobotPath();
+        movingBoxPath = path.getMovingBoxPath();
+        movingObstaclePath = path.getMovingObstaclePath();
+        solutionLoaded = true;
+    }
+
+    /** Returns the widths of the moving obstacles **/
+    private double[] getMovingObstacleWidths() {
+        double[] movingObstacleWidths = new double[numMovingObstacles];
+        for (int k = 0; k < numMovingObstacles; k++) {
+            movingObstacleWidths[k] = movingObstacles.get(k).getWidth();
+        }
+        return movingObstacleWidths;
+    }
+
+    /**
+	 * Reports a badly formatted solution file and exits.
+	 * 
+	 * @param input
+	 *            the file being read.
+	 * @param e
+	 *            what was wrong with it.
+	 */
+    private void exitOnInvalidSolution(SolutionReader input, Exception e) {
+        if (e instanceof InputMismatchException) {
+            System.out.format("Invalid number format on input file - line %d: %s",
+                    input.getLineNumber(), e.getMessage());
             System.exit(1);
-        } catch (NoSuchElementException e) {
+        } else if (e instanceof NoSuchElementException) {
             System.out.format("Not enough tokens on input file - line %d",
-                    lineNo);
+                    input.getLineNumber());
             System.exit(2);
-        } catch (NullPointerException e) {
-            System.out.format("Input file - line %d expected, but file ended.", lineNo);
+        } else {
+            System.out.format("Input file - line %d expected, but file ended.",
+                    input.getLineNumber());
             System.exit(3);
-        } finally {
-            input.close();
         }
     }
 
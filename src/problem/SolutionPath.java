@@ -0,0 +1,323 @@
+package problem;
+
+import java.awt.geom.Point2D;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * The steps of a loaded solution, stored as flat arrays of coordinates. The robot path, moving box
+ * path and moving obstacle path are views over these arrays, and only create objects for the
+ * steps that are looked at.
+ *
+ * A path can also be a window that only holds the last few steps, for checking a solution while
+ * it's read. Step i is then stored in place of step i - capacity.
+ *
+ * The box coordinates are the centres as written in the solution file.
+ */
+public class SolutionPath {
+    /** The number of steps */
+    private int size;
+
+    /** The number of steps held at once */
+    private int capacity;
+
+    /** The robot positions and orientations, by step */
+    private double[] robotX;
+    private double[] robotY;
+    private double[] robotAngle;
+
+    /** The moving box centres, numMovingBoxes per step */
+    private double[] movingBoxX;
+    private double[] movingBoxY;
+
+    /** The moving obstacle centres, numMovingObstacles per step */
+    private double[] movingObstacleX;
+    private double[] movingObstacleY;
+
+    /** The number of moving boxes */
+    private int numMovingBoxes;
+
+    /** The width of the robot and the moving boxes */
+    private double robotWidth;
+
+    /** The widths of the moving obstacles */
+    private double[] movingObstacleWidths;
+
+    /**
+     * Constructs an empty path with room for a number of steps
+     *
+     * @param size
+     *            the number of steps
+     * @param robotWidth
+     *            the width of the robot and the moving boxes
+     * @param movingObstacleWidths
+     *            the widths of the moving obstacles
+     * @param numMovingBoxes
+     *            the number of moving boxes
+     */
+    public SolutionPath(int size, double robotWidth, double[] movingObstacleWidths,
+            int numMovingBoxes) {
+        this(size, size, robotWidth, movingObstacleWidths, numMovingBoxes);
+    }
+
+    /**
+     * Constructs an empty path that only holds the last few of its steps
+     *
+     * @param size
+     *            the number of steps
+     * @param capacity
+     *            the number of steps held at once
+     * @param robotWidth
+     *            the width of the robot and the moving boxes
+     * @param movingObstacleWidths
+     *            the widths of the moving obstacles
+     * @param numMovingBoxes
+     *            the number of moving boxes
+     */
+    public SolutionPath(int size, int capacity, double robotWidth, double[] movingObstacleWidths,
+            int numMovingBoxes) {
+        this.size = size;
+        this.capacity = Math.max(1, Math.min(capacity, size));
+        this.numMovingBoxes = numMovingBoxes;
+        this.robotWidth = robotWidth;
+        this.movingObstacleWidths = movingObstacleWidths;
+
+        robotX = new double[this.capacity];
+        robotY = new double[this.capacity];
+        robotAngle = new double[this.capacity];
+        movingBoxX = new double[this.capacity * numMovingBoxes];
+        movingBoxY = new double[this.capacity * numMovingBoxes];
+        movingObstacleX = new double[this.capacity * movingObstacleWidths.length];
+        movingObstacleY = new double[this.capacity * movingObstacleWidths.length];
+    }
+
+    /** Returns the number of steps **/
+    public int size() { return size; }
+
+    /** Returns the number of steps held at once **/
+    public int getCapacity() { return capacity; }
+
+    /** Returns the number of moving boxes **/
+    public int getNumMovingBoxes() { return numMovingBoxes; }
+
+    /** Returns the number of moving obstacles **/
+    public int getNumMovingObstacles() { return movingObstacleWidths.length; }
+
+    /** Returns the width of the robot and the moving boxes **/
+    public double getRobotWidth() { return robotWidth; }
+
+    /** Returns the width of a moving obstacle **/
+    public double getMovingObstacleWidth(int obstacle) { return movingObstacleWidths[obstacle]; }
+
+    /** Returns the robot x position at a step **/
+    public double getRobotX(int step) { return robotX[step % capacity]; }
+
+    /** Returns the robot y position at a step **/
+    public double getRobotY(int step) { return robotY[step % capacity]; }
+
+    /** Returns the robot orientation at a step **/
+    public double getRobotAngle(int step) { return robotAngle[step % capacity]; }
+
+    /** Returns the x centre of a moving box at a step **/
+    public double getMovingBoxX(int step, int box) {
+        return movingBoxX[step % capacity * numMovingBoxes + box];
+    }
+
+    /** Returns the y centre of a moving box at a step **/
+    public double getMovingBoxY(int step, int box) {
+        return movingBoxY[step % capacity * numMovingBoxes + box];
+    }
+
+    /** Returns the x centre of a moving obstacle at a step **/
+    public double getMovingObstacleX(int step, int obstacle) {
+        return movingObstacleX[step % capacity * movingObstacleWidths.length + obstacle];
+    }
+
+    /** Returns the y centre of a moving obstacle at a step **/
+    public double getMovingObstacleY(int step, int obstacle) {
+        return movingObstacleY[step % capacity * movingObstacleWidths.length + obstacle];
+    }
+
+    /**
+     * Sets the robot configuration at a step
+     *
+     * @param step
+     *            the step
+     * @param x
+     *            the x position
+     * @param y
+     *            the y position
+     * @param angle
+     *            the orientation
+     */
+    public void setRobot(int step, double x, double y, double angle) {
+        robotX[step % capacity] = x;
+        robotY[step % capacity] = y;
+        robotAngle[step % capacity] = angle;
+    }
+
+    /**
+     * Sets the centre of a moving box at a step
+     *
+     * @param step
+     *            the step
+     * @param box
+     *            the index of the moving box
+     * @param x
+     *            the x centre
+     * @param y
+     *            the y centre
+     */
+    public void setMovingBox(int step, int box, double x, double y) {
+        int index = step % capacity * numMovingBoxes + box;
+        movingBoxX[index] = x;
+        movingBoxY[index] = y;
+    }
+
+    /**
+     * Sets the centre of a moving obstacle at a step
+     *
+     * @param step
+     *            the step
+     * @param obstacle
+     *            the index of the moving obstacle
+     * @param x
+     *            the x centre
+     * @param y
+     *            the y centre
+     */
+    public void setMovingObstacle(int step, int obstacle, double x, double y) {
+        int index = step % capacity * movingObstacleWidths.length + obstacle;
+        movingObstacleX[index] = x;
+        movingObstacleY[index] = y;
+    }
+
+    /**
+     * Returns the robot path as a list. Each configuration is created when it's looked at.
+     *
+     * @return the robot path
+     */
+    public List<RobotConfig> getRobotPath() {
+        return new AbstractList<RobotConfig>() {
+            @Override
+            public RobotConfig get(int step) {
+                checkStep(step);
+                return new RobotConfig(new Point2D.Double(getRobotX(step), getRobotY(step)),
+                        getRobotAngle(step));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns the moving box path as a list. Each box is created when it's looked at.
+     *
+     * @return the moving box path
+     */
+    public List<List<Box>> getMovingBoxPath() {
+        return new AbstractList<List<Box>>() {
+            @Override
+            public List<Box> get(int step) {
+                checkStep(step);
+                return movingBoxes(step);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns the moving obstacle path as a list. Each obstacle is created when it's looked at.
+     *
+     * @return the moving obstacle path
+     */
+    public List<List<Box>> getMovingObstaclePath() {
+        return new AbstractList<List<Box>>() {
+            @Override
+            public List<Box> get(int step) {
+                checkStep(step);
+                return movingObstacles(step);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Returns the moving boxes at a step as a list
+     *
+     * @param step
+     *            the step
+     * @return the moving boxes
+     */
+    private List<Box> movingBoxes(int step) {
+        return new AbstractList<Box>() {
+            @Override
+            public Box get(int box) {
+                if (box < 0 || box >= size()) {
+                    throw new IndexOutOfBoundsException("Moving box " + box);
+                }
+
+                // The box creation function requires the bottom left corner
+                return new MovingBox(new Point2D.Double(getMovingBoxX(step, box) - robotWidth / 2,
+                        getMovingBoxY(step, box) - robotWidth / 2), robotWidth);
+            }
+
+            @Override
+            public int size() {
+                return getNumMovingBoxes();
+            }
+        };
+    }
+
+    /**
+     * Returns the moving obstacles at a step as a list
+     *
+     * @param step
+     *            the step
+     * @return the moving obstacles
+     */
+    private List<Box> movingObstacles(int step) {
+        return new AbstractList<Box>() {
+            @Override
+            public Box get(int obstacle) {
+                if (obstacle < 0 || obstacle >= size()) {
+                    throw new IndexOutOfBoundsException("Moving obstacle " + obstacle);
+                }
+
+                // The box creation function requires the bottom left corner
+                double width = movingObstacleWidths[obstacle];
+                return new MovingObstacle(
+                        new Point2D.Double(getMovingObstacleX(step, obstacle) - width / 2,
+                                getMovingObstacleY(step, obstacle) - width / 2), width);
+            }
+
+            @Override
+            public int size() {
+                return movingObstacleWidths.length;
+            }
+        };
+    }
+
+    /**
+     * Checks a step is in the path
+     *
+     * @param step
+     *            the step
+     */
+    private void checkStep(int step) {
+        if (step < 0 || step >= size) {
+            throw new IndexOutOfBoundsException("Step " + step + " of " + size);
+        }
+    }
+}
@@ -0,0 +1,392 @@
+package problem;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads the numbers in a solution text file straight out of a byte buffer, without creating a
+ * string or scanner for each line. The file is either read a block at a time or memory-mapped.
+ *
+ * Numbers are parsed to exactly the same doubles as Double.parseDouble.
+ */
+public class SolutionReader implements Closeable {
+    /** Size of the block read at a time when not memory-mapped */
+    private static final int BLOCK_SIZE = 1 << 16;
+
+    /** Most decimal digits that always fit in a double's mantissa */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /** Powers of ten that are exact doubles */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+            1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /** The file */
+    private FileChannel channel;
+
+    /** The bytes read from the file but not yet parsed */
+    private ByteBuffer buffer;
+
+    /** Whether the buffer maps the whole file */
+    private boolean memoryMapped;
+
+    /** The next character, or -1 at the end of the file */
+    private int next;
+
+    /** The characters of the number being parsed */
+    private char[] token = new char[64];
+
+    /** The number of the line being read */
+    private int lineNo = 0;
+
+    /**
+     * Opens a solution file
+     *
+     * @param filename
+     *            the path of the text file to read.
+     * @param memoryMapped
+     *            whether to memory-map the file rather than read it a block at a time.
+     * @throws IOException
+     *             if the file can't be opened.
+     */
+    public SolutionReader(String filename, boolean memoryMapped) throws IOException {
+        channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+
+        // A mapping can't be bigger than the largest array
+        this.memoryMapped = memoryMapped && channel.size() <= Integer.MAX_VALUE;
+
+        if (this.memoryMapped) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } else {
+            buffer = ByteBuffer.allocate(BLOCK_SIZE);
+            buffer.flip();
+        }
+
+        next = read();
+    }
+
+    /**
+     * Reads a whole solution
+     *
+     * @param robotWidth
+     *            the width of the robot and the moving boxes
+     * @param movingObstacleWidths
+     *            the widths of the moving obstacles
+     * @param numMovingBoxes
+     *            the number of moving boxes
+     * @return the solution
+     * @throws IOException
+     *             if the file can't be read.
+     * @throws EOFException
+     *             if the file ends before all the steps.
+     * @throws InputMismatchException
+     *             if a number is badly formatted.
+     * @throws NoSuchElementException
+     *             if a line has too few numbers.
+     */
+    public SolutionPath read(double robotWidth, double[] movingObstacleWidths,
+            int numMovingBoxes) throws IOException {
+        int p = readStepCount();
+        SolutionPath path = new SolutionPath(p, robotWidth, movingObstacleWidths,
+                numMovingBoxes);
+
+        for (int i = 0; i < p; i++) {
+            readStep(path, i);
+        }
+
+        return path;
+    }
+
+    /**
+     * Reads the first line, which holds the number of steps
+     *
+     * @return the number of steps
+     * @throws IOException
+     *             if the file can't be read.
+     * @throws EOFException
+     *             if the file is empty.
+     * @throws InputMismatchException
+     *             if the number is badly formatted.
+     * @throws NoSuchElementException
+     *             if the line is empty.
+     */
+    public int readStepCount() throws IOException {
+        startLine();
+        int p = nextInt();
+        endLine();
+
+        return p;
+    }
+
+    /**
+     * Reads the next step into a path
+     *
+     * @param path
+     *            the path to read into
+     * @param step
+     *            the step to store it as
+     * @throws IOException
+     *             if the file can't be read.
+     * @throws EOFException
+     *             if the file has ended.
+     * @throws InputMismatchException
+     *             if a number is badly formatted.
+     * @throws NoSuchElementException
+     *             if the line has too few numbers.
+     */
+    public void readStep(SolutionPath path, int step) throws IOException {
+        startLine();
+        path.setRobot(step, nextDouble(), nextDouble(), nextDouble());
+
+        for (int j = 0; j < path.getNumMovingBoxes(); j++) {
+            path.setMovingBox(step, j, nextDouble(), nextDouble());
+        }
+
+        for (int k = 0; k < path.getNumMovingObstacles(); k++) {
+            path.setMovingObstacle(step, k, nextDouble(), nextDouble());
+        }
+
+        endLine();
+    }
+
+    /**
+     * Returns the number of the line being read, counting from 1
+     *
+     * @return the line number
+     */
+    public int getLineNumber() {
+        return lineNo;
+    }
+
+    /**
+     * Closes the file
+     *
+     * @throws IOException
+     *             if the file couldn't be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Starts reading the next line
+     *
+     * @throws EOFException
+     *             if the file has ended.
+     */
+    private void startLine() throws EOFException {
+        lineNo++;
+
+        if (next == -1) {
+            throw new EOFException("Input file - line " + lineNo + " expected, but file ended.");
+        }
+    }
+
+    /**
+     * Skips whatever is left on the current line
+     *
+     * @throws IOException
+     *             if the file can't be read.
+     */
+    private void endLine() throws IOException {
+        while (next != -1 && next != '\n') {
+            next = read();
+        }
+
+        if (next == '\n') {
+            next = read();
+        }
+    }
+
+    /**
+     * Reads the next whole number on the current line
+     *
+     * @return the number
+     * @throws IOException
+     *             if the file can't be read.
+     */
+    private int nextInt() throws IOException {
+        int length = nextToken();
+        int start = token[0] == '-' || token[0] == '+' ? 1 : 0;
+        long value = 0;
+
+        if (start == length || length - start > 10) {
+            throw new InputMismatchException("For input string: \"" +
+                    new String(token, 0, length) + "\"");
+        }
+
+        for (int i = start; i < length; i++) {
+            if (token[i] < '0' || token[i] > '9') {
+                throw new InputMismatchException("For input string: \"" +
+                        new String(token, 0, length) + "\"");
+            }
+
+            value = value * 10 + (token[i] - '0');
+        }
+
+        value = token[0] == '-' ? -value : value;
+
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new InputMismatchException("For input string: \"" +
+                    new String(token, 0, length) + "\"");
+        }
+
+        return (int) value;
+    }
+
+    /**
+     * Reads the next number on the current line. Numbers with few enough digits are worked out
+     * from their digits directly. A single multiplication or division by an exact power of ten is
+     * correctly rounded, so this gives the same double as Double.parseDouble. Anything else is
+     * handed to Double.parseDouble.
+     *
+     * @return the number
+     * @throws IOException
+     *             if the file can't be read.
+     */
+    private double nextDouble() throws IOException {
+        int length = nextToken();
+        int i = 0;
+        boolean negative = false;
+
+        if (token[0] == '-' || token[0] == '+') {
+            negative = token[0] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean anyDigits = false;
+        boolean fast = true;
+
+        // Whole part
+        for (; i < length && token[i] >= '0' && token[i] <= '9'; i++) {
+            anyDigits = true;
+            if (mantissa != 0 || token[i] != '0') {
+                mantissa = mantissa * 10 + (token[i] - '0');
+                digits++;
+            }
+        }
+
+        // Fractional part
+        if (i < length && token[i] == '.') {
+            for (i++; i < length && token[i] >= '0' && token[i] <= '9'; i++) {
+                anyDigits = true;
+                if (mantissa != 0 || token[i] != '0') {
+                    mantissa = mantissa * 10 + (token[i] - '0');
+                    digits++;
+                }
+                exponent--;
+            }
+        }
+
+        // Exponent
+        if (i < length && (token[i] == 'e' || token[i] == 'E') && anyDigits) {
+            i++;
+            boolean negativeExponent = false;
+
+            if (i < length && (token[i] == '-' || token[i] == '+')) {
+                negativeExponent = token[i] == '-';
+                i++;
+            }
+
+            int explicit = 0;
+            boolean anyExponentDigits = false;
+
+            for (; i < length && token[i] >= '0' && token[i] <= '9'; i++) {
+                anyExponentDigits = true;
+                explicit = Math.min(explicit * 10 + (token[i] - '0'), 10000);
+            }
+
+            fast = anyExponentDigits;
+            exponent += negativeExponent ? -explicit : explicit;
+        }
+
+        fast = fast && anyDigits && i == length && digits <= MAX_EXACT_DIGITS &&
+                Math.abs(exponent) < POWERS_OF_TEN.length;
+
+        if (!fast) {
+            // Unusual numbers, and anything that isn't a number
+            try {
+                return Double.parseDouble(new String(token, 0, length));
+            } catch (NumberFormatException e) {
+                throw new InputMismatchException(e.getMessage());
+            }
+        }
+
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] :
+                mantissa * POWERS_OF_TEN[exponent];
+
+        return negative ? -value : value;
+    }
+
+    /**
+     * Reads the next run of characters that aren't spaces on the current line into the token
+     *
+     * @return the length of the token
+     * @throws IOException
+     *             if the file can't be read.
+     * @throws NoSuchElementException
+     *             if there are no more on the current line.
+     */
+    private int nextToken() throws IOException {
+        while (next == ' ' || next == '\t' || next == '\r' || next == '\f') {
+            next = read();
+        }
+
+        if (next == -1 || next == '\n') {
+            throw new NoSuchElementException();
+        }
+
+        int length = 0;
+
+        while (next != -1 && next != '\n' && next != ' ' && next != '\t' && next != '\r' &&
+                next != '\f') {
+            if (length == token.length) {
+                char[] grown = new char[token.length * 2];
+                System.arraycopy(token, 0, grown, 0, length);
+                token = grown;
+            }
+
+            token[length++] = (char) next;
+            next = read();
+        }
+
+        return length;
+    }
+
+    /**
+     * Reads the next byte of the file
+     *
+     * @return the byte, or -1 at the end of the file
+     * @throws IOException
+     *             if the file can't be read.
+     */
+    private int read() throws IOException {
+        if (!buffer.hasRemaining()) {
+            if (memoryMapped) {
+                return -1;
+            }
+
+            buffer.clear();
+            int count = channel.read(buffer);
+            buffer.flip();
+
+            if (count <= 0) {
+                return -1;
+            }
+        }
+
+        return buffer.get() & 0xff;
+    }
+}
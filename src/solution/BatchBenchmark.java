@@ -0,0 +1,442 @@
+package solution;
+
+import problem.ProblemSpec;
+import tester.Tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Generates seeded random problems at several difficulties, solves them on a pool of threads and
+ * checks each solution with the tester, without opening the visualiser. Prints the success rate
+ * and the spread of solve times and output sizes, so runs can be compared before and after a
+ * change.
+ *
+ * Each problem is generated and solved from its own seed, so a problem's result doesn't depend on
+ * the number of threads. Each problem is solved in its own PlanningContext with the default
+ * settings.
+ */
+public class BatchBenchmark {
+    /**
+     * Names of the difficulty levels
+     */
+    private static final String[] LEVEL_NAMES = {"easy", "medium", "hard"};
+
+    /**
+     * The goal box, moveable obstacle and static obstacle counts at each difficulty level. Hard is
+     * what ProblemTester generates by default.
+     */
+    private static final int[][] LEVEL_BOX_COUNTS = {{2, 2, 4}, {5, 4, 8}, {10, 8, 12}};
+
+    /**
+     * The result of one problem
+     */
+    private static class Result {
+        /**
+         * The index of the problem in the batch
+         */
+        private int index;
+
+        /**
+         * The difficulty level
+         */
+        private int level;
+
+        /**
+         * The seed the problem was generated and solved with
+         */
+        private long seed;
+
+        /**
+         * Whether a solution was written and passed the tester with every goal reached
+         */
+        private boolean solved = false;
+
+        /**
+         * The time from loading the problem to writing the solution, in milliseconds
+         */
+        private long solveMillis;
+
+        /**
+         * The size of the solution file in bytes, or 0 if none was written
+         */
+        private long outputBytes = 0;
+
+        /**
+         * The number of times the solver was run
+         */
+        private int attempts = 0;
+
+        /**
+         * Whether solving was stopped for taking too long
+         */
+        private boolean timedOut = false;
+
+        private Result(int index, int level, long seed) {
+            this.index = index;
+            this.level = level;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * Private constructor
+     */
+    private BatchBenchmark() {}
+
+    /**
+     * Runs a batch of problems
+     *
+     * @param args the input arguments. args[0] is the number of problems. Optional flags follow:
+     * "--seed n" seeds the batch so it can be rerun, "--threads k" solves k problems at once,
+     * "--attempts a" gives up on a problem after the solver fails a times, "--timeout s" gives up
+     * on a problem after s seconds of solving, "--levels l" is a comma separated list of the
+     * difficulty levels to cycle through (easy, medium and hard), and "--dir d" keeps the problem
+     * and solution files in the directory d.
+     */
+    public static void main(String[] args) {
+        int count;
+        long seed = new SplittableRandom().nextLong();
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxAttempts = 20;
+        long timeoutSeconds = 120;
+        int[] levels = {0, 1, 2};
+        File dir = null;
+
+        // Read the arguments
+        try {
+            count = Integer.parseInt(args[0]);
+
+            for (int i = 1; i < args.length; i++) {
+                if (args[i].equals("--seed")) {
+                    seed = Long.parseLong(args[++i]);
+                } else if (args[i].equals("--threads")) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--attempts")) {
+                    maxAttempts = Integer.parseInt(args[++i]);
+                } else if (args[i].equals("--timeout")) {
+                    timeoutSeconds = Long.parseLong(args[++i]);
+                } else if (args[i].equals("--levels")) {
+                    levels = parseLevels(args[++i]);
+                } else if (args[i].equals("--dir")) {
+                    dir = new File(args[++i]);
+                } else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+
+            if (count < 1 || threads < 1 || maxAttempts < 1 || timeoutSeconds < 1) {
+                throw new IllegalArgumentException("Counts must be positive");
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Invalid option");
+            e.printStackTrace();
+            return;
+        }
+
+        try {
+            if (dir == null) {
+                dir = Files.createTempDirectory("benchmark").toFile();
+            } else if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw new IOException("Couldn't create " + dir);
+            }
+        } catch (IOException e) {
+            System.out.println("Invalid output directory");
+            e.printStackTrace();
+            return;
+        }
+
+        System.out.println("Seed: " + seed);
+        System.out.println("Files: " + dir);
+
+        Result[] results = runBatch(count, seed, threads, maxAttempts, timeoutSeconds, levels,
+                dir);
+
+        if (results != null) {
+            printSummary(results);
+        }
+    }
+
+    /**
+     * Generate, solve and test a batch of problems
+     *
+     * @param count the number of problems
+     * @param seed the seed the problems' seeds are drawn from
+     * @param threads the number of problems to solve at once
+     * @param maxAttempts the number of times to run the solver before giving up on a problem
+     * @param timeoutSeconds the time to solve for before giving up on a problem
+     * @param levels the difficulty levels to cycle through
+     * @param dir the directory to write the problem and solution files to
+     *
+     * @return the results in problem order, or null if interrupted
+     */
+    private static Result[] runBatch(int count, long seed, int threads, int maxAttempts,
+            long timeoutSeconds, int[] levels, File dir) {
+        SplittableRandom seeds = new SplittableRandom(seed);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor();
+        Result[] results = new Result[count];
+
+        try {
+            ArrayList<Future<Result>> runs = new ArrayList<>();
+
+            for (int i = 0; i < count; i++) {
+                Result result = new Result(i, levels[i % levels.length], seeds.nextLong());
+
+                runs.add(executor.submit(() -> runProblem(result, maxAttempts, timeoutSeconds,
+                        watchdog, dir)));
+            }
+
+            // Print each problem as soon as it and the ones before it are done
+            for (int i = 0; i < count; i++) {
+                results[i] = runs.get(i).get();
+                printResult(results[i]);
+            }
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            executor.shutdownNow();
+            watchdog.shutdownNow();
+        }
+
+        return results;
+    }
+
+    /**
+     * Generate, solve and test a problem
+     *
+     * @param result the problem, which the result is filled in on
+     * @param maxAttempts the number of times to run the solver before giving up
+     * @param timeoutSeconds the time to solve for before giving up
+     * @param watchdog interrupts the solve when it runs out of time
+     * @param dir the directory to write the problem and solution files to
+     *
+     * @return the result
+     */
+    private static Result runProblem(Result result, int maxAttempts, long timeoutSeconds,
+            ScheduledExecutorService watchdog, File dir) {
+        String problemFile = new File(dir, "problem" + result.index + ".txt").getPath();
+        String solutionFile = new File(dir, "solution" + result.index + ".txt").getPath();
+        int[] boxCounts = LEVEL_BOX_COUNTS[result.level];
+
+        // Generate the problem
+        ProblemTester problemTester = new ProblemTester(result.seed);
+        problemTester.setBoxCounts(boxCounts[0], boxCounts[1], boxCounts[2]);
+
+        try {
+            problemTester.generateAndWrite(problemFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return result;
+        }
+
+        // Solve it, the same way as Main but giving up after a while. The searches stop once this
+        // thread is interrupted.
+        long start = System.nanoTime();
+        boolean written = false;
+        Thread worker = Thread.currentThread();
+        AtomicBoolean wentOff = new AtomicBoolean(false);
+        ScheduledFuture<?> alarm = watchdog.schedule(() -> {
+            wentOff.set(true);
+            worker.interrupt();
+        }, timeoutSeconds, TimeUnit.SECONDS);
+
+        try {
+            GoalBoxSolver solver = new GoalBoxSolver(problemFile, new PlanningContext(result.seed));
+
+            while (!written && result.attempts < maxAttempts && !worker.isInterrupted()) {
+                result.attempts++;
+
+                try {
+                    ArrayList<RobotAction> robotPath = solver.solve();
+
+                    new Outputter(robotPath, solver.getMoveableObstacles(), solver.getGoalBoxes(),
+                            solver.getContext()
+                    ).writeSolution(solutionFile);
+
+                    written = true;
+                } catch (NoPathException e) {
+                    // The solver has discarded the part that failed, try again
+                } catch (BoxLostException e) {
+                    solver.repairFromAction(e.getActionIndex());
+                }
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        result.solveMillis = (System.nanoTime() - start) / 1000000;
+
+        // Make sure the alarm can't go off later. If it's going off right now, wait for it to
+        // finish so its interrupt can be cleared.
+        alarm.cancel(false);
+
+        boolean alarmDone = false;
+
+        while (!alarmDone) {
+            try {
+                alarm.get();
+                alarmDone = true;
+            } catch (CancellationException | ExecutionException e) {
+                alarmDone = true;
+            } catch (InterruptedException e) {
+                // The alarm's interrupt, which clears the flag, so wait again
+            }
+        }
+
+        Thread.interrupted();
+        result.timedOut = wentOff.get() && !written;
+
+        if (!written) {
+            return result;
+        }
+
+        // Test it
+        result.outputBytes = new File(solutionFile).length();
+
+        ProblemSpec ps = new ProblemSpec();
+
+        try {
+            ps.loadProblem(problemFile);
+            ps.loadSolution(solutionFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return result;
+        }
+
+        result.solved = new Tester(ps).testSolutionReturn();
+
+        return result;
+    }
+
+    /**
+     * Parse a comma separated list of difficulty level names
+     *
+     * @param list the list
+     *
+     * @return the indices of the levels
+     */
+    private static int[] parseLevels(String list) {
+        String[] names = list.split(",");
+        int[] levels = new int[names.length];
+
+        for (int i = 0; i < names.length; i++) {
+            levels[i] = Arrays.asList(LEVEL_NAMES).indexOf(names[i].trim());
+
+            if (levels[i] == -1) {
+                throw new IllegalArgumentException("Unknown level: " + names[i]);
+            }
+        }
+
+        return levels;
+    }
+
+    /**
+     * Print the result of one problem
+     *
+     * @param result the result
+     */
+    private static void printResult(Result result) {
+        String outcome = result.solved ? "solved" : result.timedOut ? "TIMED OUT" : "FAILED";
+
+        System.out.println("Problem " + result.index + " (" + LEVEL_NAMES[result.level] +
+                ", seed " + result.seed + "): " + outcome + " in " + result.solveMillis +
+                "ms after " + result.attempts + " attempt(s), " + result.outputBytes + " bytes");
+    }
+
+    /**
+     * Print the success rate at each level and overall, and the percentiles of the solve times
+     * and output sizes of the problems solved
+     *
+     * @param results the results
+     */
+    private static void printSummary(Result[] results) {
+        System.out.println();
+
+        for (int level = 0; level < LEVEL_NAMES.length; level++) {
+            printRate(LEVEL_NAMES[level], results, level);
+        }
+
+        printRate("all", results, -1);
+
+        long[] solveMillis = new long[results.length];
+        long[] outputBytes = new long[results.length];
+        int solved = 0;
+
+        for (Result result : results) {
+            if (result.solved) {
+                solveMillis[solved] = result.solveMillis;
+                outputBytes[solved] = result.outputBytes;
+                solved++;
+            }
+        }
+
+        if (solved == 0) {
+            return;
+        }
+
+        solveMillis = Arrays.copyOf(solveMillis, solved);
+        outputBytes = Arrays.copyOf(outputBytes, solved);
+        Arrays.sort(solveMillis);
+        Arrays.sort(outputBytes);
+
+        System.out.println("Solve time (ms): p50 " + percentile(solveMillis, 50) + ", p95 " +
+                percentile(solveMillis, 95) + ", p99 " + percentile(solveMillis, 99));
+        System.out.println("Output size (bytes): p50 " + percentile(outputBytes, 50) + ", p95 " +
+                percentile(outputBytes, 95) + ", p99 " + percentile(outputBytes, 99));
+    }
+
+    /**
+     * Print the number of problems solved at a level
+     *
+     * @param name the name to print
+     * @param results the results
+     * @param level the level, or -1 for every level
+     */
+    private static void printRate(String name, Result[] results, int level) {
+        int total = 0;
+        int solved = 0;
+
+        for (Result result : results) {
+            if (level == -1 || result.level == level) {
+                total++;
+                solved += result.solved ? 1 : 0;
+            }
+        }
+
+        if (total > 0) {
+            System.out.printf("%s: %d of %d solved (%.1f%%)%n", name, solved, total,
+                    100.0 * solved / total);
+        }
+    }
+
+    /**
+     * Get a percentile by the nearest rank method
+     *
+     * @param sorted the values, sorted and not empty
+     * @param percent the percentile, from 0 to 100
+     *
+     * @return the smallest value that at least percent of the values are no bigger than
+     */
+    private static long percentile(long[] sorted, double percent) {
+        int rank = (int) Math.ceil(percent / 100 * sorted.length);
+
+        return sorted[Math.max(rank, 1) - 1];
+    }
+}
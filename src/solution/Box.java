@@ -60,6 +60,97 @@ public class Box {
         return rect.intersects(other.rect);
     }
 
+    /**
+     * Check if this box intersects a line segment. Gives exactly the same answer as
+     * Rectangle2D.intersectsLine (the same outcode clipping, in the same order of operations), but
+     * works on primitives.
+     *
+     * @param x1 the x value of the start of the segment
+     * @param y1 the y value of the start of the segment
+     * @param x2 the x value of the end of the segment
+     * @param y2 the y value of the end of the segment
+     *
+     * @return whether this box intersects the segment
+     */
+    public boolean intersectsLine(double x1, double y1, double x2, double y2) {
+        double x = rect.getX();
+        double y = rect.getY();
+        double w = rect.getWidth();
+        double h = rect.getHeight();
+
+        int out2 = outcode(x, y, w, h, x2, y2);
+
+        if (out2 == 0) {
+            return true;
+        }
+
+        int out1;
+
+        while ((out1 = outcode(x, y, w, h, x1, y1)) != 0) {
+            if ((out1 & out2) != 0) {
+                return false;
+            }
+
+            if ((out1 & (Rectangle2D.OUT_LEFT | Rectangle2D.OUT_RIGHT)) != 0) {
+                // Clip to the left or right edge
+                double edgeX = x;
+
+                if ((out1 & Rectangle2D.OUT_RIGHT) != 0) {
+                    edgeX += w;
+                }
+
+                y1 = y1 + (edgeX - x1) * (y2 - y1) / (x2 - x1);
+                x1 = edgeX;
+            } else {
+                // Clip to the top or bottom edge
+                double edgeY = y;
+
+                if ((out1 & Rectangle2D.OUT_BOTTOM) != 0) {
+                    edgeY += h;
+                }
+
+                x1 = x1 + (edgeY - y1) * (x2 - x1) / (y2 - y1);
+                y1 = edgeY;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Work out where a point is relative to a rectangle, as Rectangle2D.Double.outcode does
+     *
+     * @param x the x value of the rectangle
+     * @param y the y value of the rectangle
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @param px the x value of the point
+     * @param py the y value of the point
+     *
+     * @return the Rectangle2D.OUT_* flags for the point
+     */
+    private static int outcode(double x, double y, double w, double h, double px, double py) {
+        int out = 0;
+
+        if (w <= 0) {
+            out |= Rectangle2D.OUT_LEFT | Rectangle2D.OUT_RIGHT;
+        } else if (px < x) {
+            out |= Rectangle2D.OUT_LEFT;
+        } else if (px > x + w) {
+            out |= Rectangle2D.OUT_RIGHT;
+        }
+
+        if (h <= 0) {
+            out |= Rectangle2D.OUT_TOP | Rectangle2D.OUT_BOTTOM;
+        } else if (py < y) {
+            out |= Rectangle2D.OUT_TOP;
+        } else if (py > y + h) {
+            out |= Rectangle2D.OUT_BOTTOM;
+        }
+
+        return out;
+    }
+
     /**
      * Create a bounding box around both this and another box
      *
@@ -119,6 +210,24 @@ public class Box {
         return true;
     }
 
+    /**
+     * Check if the box is valid against an obstacle index. Same as isValid with a list, but only
+     * nearby obstacles are checked.
+     *
+     * @param obstacles the obstacles
+     *
+     * @return whether the box is valid or not
+     */
+    public boolean isValid(ObstacleGrid obstacles) {
+        // Check if the box is inside the workspace
+        Rectangle2D boundingRectangle = new Rectangle2D.Double(0, 0, 1, 1);
+        if (!boundingRectangle.contains(rect)) {
+            return false;
+        }
+
+        return !obstacles.intersects(this);
+    }
+
     /**
      * Check if this box equals another object.
      *
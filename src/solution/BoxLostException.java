@@ -3,4 +3,34 @@ package solution;
 /**
  * A box was lost while outputting
  */
-public class BoxLostException extends Exception {}
+public class BoxLostException extends Exception {
+    /**
+     * The index in the robot path of the action that lost the box, or -1 if unknown
+     */
+    private int actionIndex;
+
+    /**
+     * Construct the exception without knowing which action lost the box
+     */
+    public BoxLostException() {
+        this(-1);
+    }
+
+    /**
+     * Construct the exception
+     *
+     * @param actionIndex the index in the robot path of the action that lost the box
+     */
+    public BoxLostException(int actionIndex) {
+        this.actionIndex = actionIndex;
+    }
+
+    /**
+     * Get the action that lost the box
+     *
+     * @return the index in the robot path of the action, or -1 if unknown
+     */
+    public int getActionIndex() {
+        return actionIndex;
+    }
+}
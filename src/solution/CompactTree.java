@@ -0,0 +1,250 @@
+package solution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * The tree an RRT grows, stored as primitive arrays: the coordinates of each node's state and the
+ * index of each node's parent. Nodes are referred to by their index. Actions aren't stored, since
+ * each one is fully determined by the states at either end of its edge; they are rebuilt by the
+ * codec when a path is read. Costs a few doubles and an int per node instead of a TreeNode, its
+ * child list, a state, its shapes and an action.
+ *
+ * @param <T> the state class
+ * @param <U> the action class
+ */
+public class CompactTree<T extends State<T>, U> {
+    /**
+     * Converts states to and from coordinates
+     */
+    private StateCodec<T, U> codec;
+
+    /**
+     * The coordinates of every node, getDimensions() values per node
+     */
+    private double[] coordinates;
+
+    /**
+     * The index of the parent of every node, -1 for the root
+     */
+    private int[] parents;
+
+    /**
+     * The number of nodes
+     */
+    private int size;
+
+    /**
+     * Construct an empty tree
+     *
+     * @param codec converts states to and from coordinates
+     */
+    public CompactTree(StateCodec<T, U> codec) {
+        this.codec = codec;
+        coordinates = new double[16 * codec.getDimensions()];
+        parents = new int[16];
+        size = 0;
+    }
+
+    /**
+     * Add a node to the tree
+     *
+     * @param parent the index of the parent, -1 if this is the root
+     * @param state the state of the node
+     *
+     * @return the index of the new node
+     */
+    public int add(int parent, T state) {
+        // Grow the arrays if needed
+        if (size == parents.length) {
+            parents = Arrays.copyOf(parents, size * 2);
+            coordinates = Arrays.copyOf(coordinates, size * 2 * codec.getDimensions());
+        }
+
+        parents[size] = parent;
+        codec.encode(state, coordinates, size * codec.getDimensions());
+
+        return size++;
+    }
+
+    /**
+     * Get the number of nodes in the tree
+     *
+     * @return the number of nodes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the index of a node's parent
+     *
+     * @param node the index of the node
+     *
+     * @return the index of the parent, -1 for the root
+     */
+    public int getParent(int node) {
+        return parents[node];
+    }
+
+    /**
+     * Get the state of a node. A new state object is created each time.
+     *
+     * @param node the index of the node
+     *
+     * @return the state
+     */
+    public T getState(int node) {
+        return codec.decode(coordinates, node * codec.getDimensions());
+    }
+
+    /**
+     * Compute the distance from a node's state to another state, without creating the node's state
+     *
+     * @param node the index of the node
+     * @param other the other state
+     *
+     * @return the same as getState(node).distanceTo(other)
+     */
+    public double distance(int node, T other) {
+        return codec.distance(coordinates, node * codec.getDimensions(), other);
+    }
+
+    /**
+     * Get the x value of a node's index point
+     *
+     * @param node the index of the node
+     *
+     * @return the index point x value
+     */
+    public double getIndexX(int node) {
+        return codec.getIndexX(coordinates, node * codec.getDimensions());
+    }
+
+    /**
+     * Get the y value of a node's index point
+     *
+     * @param node the index of the node
+     *
+     * @return the index point y value
+     */
+    public double getIndexY(int node) {
+        return codec.getIndexY(coordinates, node * codec.getDimensions());
+    }
+
+    /**
+     * Get the indices of the nodes from the root to a node. List is ordered from root to the node.
+     *
+     * @param node the index of the last node
+     *
+     * @return the node indices
+     */
+    private ArrayList<Integer> indexPathFromRoot(int node) {
+        ArrayList<Integer> path = new ArrayList<>();
+
+        for (int current = node; current != -1; current = parents[current]) {
+            path.add(current);
+        }
+
+        Collections.reverse(path);
+
+        return path;
+    }
+
+    /**
+     * Get the path from the root to a node as a chain of new TreeNodes. Only the nodes on the path
+     * are created, so each has at most one child. List is ordered from root to the node.
+     *
+     * @param node the index of the last node
+     *
+     * @return a path from the root to the node
+     */
+    public ArrayList<TreeNode<T, U>> pathFromRoot(int node) {
+        ArrayList<TreeNode<T, U>> path = new ArrayList<>();
+        TreeNode<T, U> parentNode = null;
+
+        for (int index : indexPathFromRoot(node)) {
+            T state = getState(index);
+            U action = parentNode == null ? null : codec.action(parentNode.getState(), state);
+            TreeNode<T, U> treeNode = new TreeNode<>(state, action);
+
+            if (parentNode != null) {
+                parentNode.addChild(treeNode);
+            }
+
+            path.add(treeNode);
+            parentNode = treeNode;
+        }
+
+        return path;
+    }
+
+    /**
+     * Get the list of states from the root to a node. List is ordered from root to the node.
+     *
+     * @param node the index of the last node
+     *
+     * @return a state path from the root to the node
+     */
+    public ArrayList<T> statePathFromRoot(int node) {
+        ArrayList<T> path = new ArrayList<>();
+
+        for (int index : indexPathFromRoot(node)) {
+            path.add(getState(index));
+        }
+
+        return path;
+    }
+
+    /**
+     * Get the list of actions from the root to a node. List is ordered from root to the node.
+     *
+     * @param node the index of the last node
+     *
+     * @return an action path from the root to the node
+     */
+    public ArrayList<U> actionPathFromRoot(int node) {
+        ArrayList<U> path = new ArrayList<>();
+        T parentState = null;
+
+        for (int index : indexPathFromRoot(node)) {
+            T state = getState(index);
+
+            if (parentState != null) {
+                path.add(codec.action(parentState, state));
+            }
+
+            parentState = state;
+        }
+
+        return path;
+    }
+
+    /**
+     * Build the whole tree as TreeNodes, e.g. to draw it. This creates every object the arrays
+     * save, so it is only meant for debugging.
+     *
+     * @return the root of the new tree
+     */
+    public TreeNode<T, U> toTreeNode() {
+        ArrayList<TreeNode<T, U>> treeNodes = new ArrayList<>();
+
+        // Parents always come before their children
+        for (int node = 0; node < size; node++) {
+            T state = getState(node);
+            TreeNode<T, U> parentNode = parents[node] == -1 ? null : treeNodes.get(parents[node]);
+            TreeNode<T, U> treeNode = new TreeNode<>(state,
+                    parentNode == null ? null : codec.action(parentNode.getState(), state)
+            );
+
+            if (parentNode != null) {
+                parentNode.addChild(treeNode);
+            }
+
+            treeNodes.add(treeNode);
+        }
+
+        return treeNodes.get(0);
+    }
+}
@@ -0,0 +1,305 @@
+package solution;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+
+import static java.lang.Math.*;
+import static solution.Utility.mod;
+
+/**
+ * Continuous collision checks for robot motions. Instead of checking the robot at every step of a
+ * motion, the whole region the robot sweeps through is checked against the boxes at once. The
+ * region is exact for pure translations and pure rotations, and is bounded by a capsule around the
+ * path of the centre for anything else.
+ *
+ * The checks are conservative. A motion is only reported clear if every configuration along it
+ * is valid, so a clear motion would also pass the stepped check in RobotState. Anything touching
+ * or very close to a box is reported as possibly colliding, and should be checked by stepping.
+ */
+public class ContinuousCollision {
+    /**
+     * How far boxes are grown by before checking, to absorb rounding errors
+     */
+    private static final double MARGIN = 1e-9;
+
+    /**
+     * Check if a robot motion is definitely free of collisions and stays inside the workspace
+     *
+     * @param robot the robot at the start of the motion
+     * @param dx change in x
+     * @param dy change in y
+     * @param dtheta change in theta
+     * @param boxToPush the box being pushed, or null if there isn't one
+     * @param obstacles the obstacles to avoid
+     *
+     * @return true if the motion is clear, false if it might collide
+     */
+    public static boolean isMotionClear(Robot robot, double dx, double dy, double dtheta,
+            Box boxToPush, ObstacleGrid obstacles) {
+        if (!isInsideWorkspace(robot, dx, dy, dtheta)) {
+            return false;
+        }
+
+        // Only obstacles near the region the robot could sweep need checking
+        double radius = robot.getWidth() / 2;
+
+        if (obstacles.anyNear(min(robot.getX(), robot.getX() + dx) - radius,
+                min(robot.getY(), robot.getY() + dy) - radius,
+                max(robot.getX(), robot.getX() + dx) + radius,
+                max(robot.getY(), robot.getY() + dy) + radius,
+                box -> mightCollide(robot, dx, dy, dtheta, box.getRect())
+        )) {
+            return false;
+        }
+
+        return boxToPush == null || !mightCollide(robot, dx, dy, dtheta, boxToPush.getRect());
+    }
+
+    /**
+     * Check if the region swept by a robot motion might touch a rectangle
+     *
+     * @param robot the robot at the start of the motion
+     * @param dx change in x
+     * @param dy change in y
+     * @param dtheta change in theta
+     * @param rect the rectangle
+     *
+     * @return whether the swept region might touch the rectangle
+     */
+    private static boolean mightCollide(Robot robot, double dx, double dy, double dtheta,
+            Rectangle2D rect) {
+        Rectangle2D grown = new Rectangle2D.Double(rect.getX() - MARGIN, rect.getY() - MARGIN,
+                rect.getWidth() + 2 * MARGIN, rect.getHeight() + 2 * MARGIN
+        );
+
+        double radius = robot.getWidth() / 2;
+
+        if (dtheta == 0) {
+            return parallelogramIntersects(robot, dx, dy, grown);
+        } else if (dx == 0 && dy == 0) {
+            // Each half of the robot sweeps a sector
+            double start = dtheta > 0 ? robot.getTheta() : robot.getTheta() + dtheta;
+
+            return sectorIntersects(robot.getX(), robot.getY(), radius, start, abs(dtheta), grown) ||
+                           sectorIntersects(robot.getX(), robot.getY(), radius, start + PI,
+                                   abs(dtheta), grown
+                           );
+        } else {
+            // The robot never leaves the circle around its centre
+            return segmentDistance(robot.getX(), robot.getY(), robot.getX() + dx,
+                    robot.getY() + dy, grown
+            ) <= radius;
+        }
+    }
+
+    /**
+     * Check if a translating robot sweeps through a rectangle. The swept region is a
+     * parallelogram, which is tested with the separating axis theorem.
+     *
+     * @param robot the robot at the start of the motion
+     * @param dx change in x
+     * @param dy change in y
+     * @param rect the rectangle
+     *
+     * @return whether the parallelogram touches the rectangle
+     */
+    private static boolean parallelogramIntersects(Robot robot, double dx, double dy,
+            Rectangle2D rect) {
+        double radius = robot.getWidth() / 2;
+        double ux = cos(robot.getTheta()) * radius;
+        double uy = sin(robot.getTheta()) * radius;
+
+        double[] xs = {robot.getX() - ux, robot.getX() + ux, robot.getX() + ux + dx,
+                robot.getX() - ux + dx};
+        double[] ys = {robot.getY() - uy, robot.getY() + uy, robot.getY() + uy + dy,
+                robot.getY() - uy + dy};
+
+        // Axes of the rectangle, then the normals of the parallelogram's sides
+        double[][] axes = {{1, 0}, {0, 1}, {-uy, ux}, {-dy, dx}};
+
+        for (double[] axis : axes) {
+            double shapeMin = Double.POSITIVE_INFINITY;
+            double shapeMax = Double.NEGATIVE_INFINITY;
+
+            for (int i = 0; i < 4; i++) {
+                double projection = xs[i] * axis[0] + ys[i] * axis[1];
+                shapeMin = min(shapeMin, projection);
+                shapeMax = max(shapeMax, projection);
+            }
+
+            double rectMin = Double.POSITIVE_INFINITY;
+            double rectMax = Double.NEGATIVE_INFINITY;
+
+            for (double x : new double[] {rect.getMinX(), rect.getMaxX()}) {
+                for (double y : new double[] {rect.getMinY(), rect.getMaxY()}) {
+                    double projection = x * axis[0] + y * axis[1];
+                    rectMin = min(rectMin, projection);
+                    rectMax = max(rectMax, projection);
+                }
+            }
+
+            if (shapeMax < rectMin || rectMax < shapeMin) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Check if a circular sector touches a rectangle. They touch if the sector's boundary touches
+     * the rectangle, or the rectangle is inside the sector.
+     *
+     * @param cx the x value of the centre of the circle
+     * @param cy the y value of the centre of the circle
+     * @param radius the radius of the circle
+     * @param start the angle the sector starts at
+     * @param span the counter clockwise angle the sector covers
+     * @param rect the rectangle
+     *
+     * @return whether the sector touches the rectangle
+     */
+    private static boolean sectorIntersects(double cx, double cy, double radius, double start,
+            double span, Rectangle2D rect) {
+        // The two straight edges
+        if (rect.intersectsLine(cx, cy, cx + cos(start) * radius, cy + sin(start) * radius) ||
+                    rect.intersectsLine(cx, cy, cx + cos(start + span) * radius,
+                            cy + sin(start + span) * radius
+                    )) {
+            return true;
+        }
+
+        // A corner of the rectangle inside the sector
+        for (double x : new double[] {rect.getMinX(), rect.getMaxX()}) {
+            for (double y : new double[] {rect.getMinY(), rect.getMaxY()}) {
+                if (hypot(x - cx, y - cy) <= radius &&
+                            isAngleInside(atan2(y - cy, x - cx), start, span)) {
+                    return true;
+                }
+            }
+        }
+
+        // The arc crossing an edge of the rectangle
+        for (double x : new double[] {rect.getMinX(), rect.getMaxX()}) {
+            double offset = radius * radius - (x - cx) * (x - cx);
+
+            if (offset >= 0) {
+                for (double y : new double[] {cy - sqrt(offset), cy + sqrt(offset)}) {
+                    if (y >= rect.getMinY() && y <= rect.getMaxY() &&
+                                isAngleInside(atan2(y - cy, x - cx), start, span)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        for (double y : new double[] {rect.getMinY(), rect.getMaxY()}) {
+            double offset = radius * radius - (y - cy) * (y - cy);
+
+            if (offset >= 0) {
+                for (double x : new double[] {cx - sqrt(offset), cx + sqrt(offset)}) {
+                    if (x >= rect.getMinX() && x <= rect.getMaxX() &&
+                                isAngleInside(atan2(y - cy, x - cx), start, span)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        // The arc's ends can only be inside the rectangle if the straight edges touch it, so the
+        // sector misses the rectangle
+        return false;
+    }
+
+    /**
+     * Check if an angle is inside a range of angles, erring on the side of inside
+     *
+     * @param angle the angle
+     * @param start the start of the range
+     * @param span the counter clockwise angle the range covers
+     *
+     * @return whether the angle is inside the range
+     */
+    private static boolean isAngleInside(double angle, double start, double span) {
+        double fromStart = mod(angle - start, 2 * PI);
+
+        return fromStart <= span + MARGIN || fromStart >= 2 * PI - MARGIN;
+    }
+
+    /**
+     * Calculate the distance between a line segment and a rectangle
+     *
+     * @param x1 the x value of the start of the segment
+     * @param y1 the y value of the start of the segment
+     * @param x2 the x value of the end of the segment
+     * @param y2 the y value of the end of the segment
+     * @param rect the rectangle
+     *
+     * @return the distance, 0 if they touch
+     */
+    private static double segmentDistance(double x1, double y1, double x2, double y2,
+            Rectangle2D rect) {
+        if (rect.intersectsLine(x1, y1, x2, y2)) {
+            return 0;
+        }
+
+        double distance = min(pointDistance(x1, y1, rect), pointDistance(x2, y2, rect));
+
+        for (double x : new double[] {rect.getMinX(), rect.getMaxX()}) {
+            for (double y : new double[] {rect.getMinY(), rect.getMaxY()}) {
+                distance = min(distance, Line2D.ptSegDist(x1, y1, x2, y2, x, y));
+            }
+        }
+
+        return distance;
+    }
+
+    /**
+     * Calculate the distance between a point and a rectangle
+     *
+     * @param x the x value of the point
+     * @param y the y value of the point
+     * @param rect the rectangle
+     *
+     * @return the distance, 0 if the point is inside
+     */
+    private static double pointDistance(double x, double y, Rectangle2D rect) {
+        double outsideX = max(max(rect.getMinX() - x, x - rect.getMaxX()), 0);
+        double outsideY = max(max(rect.getMinY() - y, y - rect.getMaxY()), 0);
+
+        return hypot(outsideX, outsideY);
+    }
+
+    /**
+     * Check if the ends of the robot stay inside the workspace throughout a motion
+     *
+     * @param robot the robot at the start of the motion
+     * @param dx change in x
+     * @param dy change in y
+     * @param dtheta change in theta
+     *
+     * @return true if the robot definitely stays inside the workspace
+     */
+    private static boolean isInsideWorkspace(Robot robot, double dx, double dy, double dtheta) {
+        double radius = robot.getWidth() / 2;
+        double minX, minY, maxX, maxY;
+
+        if (dtheta == 0) {
+            // The ends move in straight lines, so checking either end of the motion is enough
+            double ux = abs(cos(robot.getTheta()) * radius);
+            double uy = abs(sin(robot.getTheta()) * radius);
+            minX = min(robot.getX(), robot.getX() + dx) - ux;
+            maxX = max(robot.getX(), robot.getX() + dx) + ux;
+            minY = min(robot.getY(), robot.getY() + dy) - uy;
+            maxY = max(robot.getY(), robot.getY() + dy) + uy;
+        } else {
+            // The ends stay inside the circle around the centre
+            minX = min(robot.getX(), robot.getX() + dx) - radius;
+            maxX = max(robot.getX(), robot.getX() + dx) + radius;
+            minY = min(robot.getY(), robot.getY() + dy) - radius;
+            maxY = max(robot.getY(), robot.getY() + dy) + radius;
+        }
+
+        return minX >= MARGIN && minY >= MARGIN && maxX <= 1 - MARGIN && maxY <= 1 - MARGIN;
+    }
+}
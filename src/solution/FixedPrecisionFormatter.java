@@ -0,0 +1,248 @@
+package solution;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Formats numbers with a fixed number of decimal places into a reusable buffer, then writes the
+ * buffer out. Formatting a number doesn't allocate, unlike Double.toString, and drops the digits
+ * the tester never looks at.
+ */
+public class FixedPrecisionFormatter {
+    /**
+     * Number of decimal places used when none is given
+     */
+    public static final int DEFAULT_DECIMALS = 8;
+
+    /**
+     * Most decimal places allowed, so the scaled numbers still fit in a long
+     */
+    public static final int MAX_DECIMALS = 15;
+
+    /**
+     * Number of decimal places to write
+     */
+    private int decimals;
+
+    /**
+     * 10 to the power of decimals
+     */
+    private long scale;
+
+    /**
+     * Largest absolute value that can be scaled without overflowing a long
+     */
+    private double maxScaledValue;
+
+    /**
+     * The characters written since the buffer was last written out
+     */
+    private char[] buffer;
+
+    /**
+     * Number of characters in the buffer
+     */
+    private int length;
+
+    /**
+     * Construct a formatter with the default number of decimal places
+     */
+    public FixedPrecisionFormatter() {
+        this(DEFAULT_DECIMALS);
+    }
+
+    /**
+     * Construct a formatter
+     *
+     * @param decimals the number of decimal places to write, from 0 to MAX_DECIMALS
+     */
+    public FixedPrecisionFormatter(int decimals) {
+        if (decimals < 0 || decimals > MAX_DECIMALS) {
+            throw new IllegalArgumentException("Decimal places must be from 0 to " + MAX_DECIMALS);
+        }
+
+        this.decimals = decimals;
+
+        scale = 1;
+
+        for (int i = 0; i < decimals; i++) {
+            scale *= 10;
+        }
+
+        maxScaledValue = (double) (Long.MAX_VALUE / 10) / scale;
+        buffer = new char[256];
+        length = 0;
+    }
+
+    /**
+     * Append a number, rounded to the formatter's number of decimal places. Trailing zeros are
+     * left off.
+     *
+     * @param value the number
+     *
+     * @return this formatter
+     */
+    public FixedPrecisionFormatter append(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= maxScaledValue) {
+            // Too big to scale, this never happens for positions in the unit square
+            return append(Double.toString(value));
+        }
+
+        long scaled = Math.round(Math.abs(value) * scale);
+
+        // Don't write -0
+        if (value < 0 && scaled != 0) {
+            append('-');
+        }
+
+        appendDigits(scaled / scale, 1);
+
+        long fraction = scaled % scale;
+
+        if (fraction != 0) {
+            int digits = decimals;
+
+            while (fraction % 10 == 0) {
+                fraction /= 10;
+                digits--;
+            }
+
+            append('.');
+            appendDigits(fraction, digits);
+        }
+
+        return this;
+    }
+
+    /**
+     * Append a number with every digit needed to read it back as the same double. This allocates,
+     * so it's only for the few numbers that must be exact.
+     *
+     * @param value the number
+     *
+     * @return this formatter
+     */
+    public FixedPrecisionFormatter appendExact(double value) {
+        return append(Double.toString(value));
+    }
+
+    /**
+     * Append a whole number
+     *
+     * @param value the number
+     *
+     * @return this formatter
+     */
+    public FixedPrecisionFormatter append(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                return append(Long.toString(value));
+            }
+
+            append('-');
+            value = -value;
+        }
+
+        appendDigits(value, 1);
+
+        return this;
+    }
+
+    /**
+     * Append a character
+     *
+     * @param c the character
+     *
+     * @return this formatter
+     */
+    public FixedPrecisionFormatter append(char c) {
+        ensureCapacity(1);
+        buffer[length++] = c;
+
+        return this;
+    }
+
+    /**
+     * Append a string
+     *
+     * @param s the string
+     *
+     * @return this formatter
+     */
+    public FixedPrecisionFormatter append(String s) {
+        ensureCapacity(s.length());
+        s.getChars(0, s.length(), buffer, length);
+        length += s.length();
+
+        return this;
+    }
+
+    /**
+     * Write everything appended so far and empty the buffer
+     *
+     * @param writer the writer to write to
+     *
+     * @throws IOException if there was an IO exception when writing
+     */
+    public void writeTo(Writer writer) throws IOException {
+        writer.write(buffer, 0, length);
+        length = 0;
+    }
+
+    /**
+     * Get the number of decimal places written
+     *
+     * @return the number of decimal places
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+
+    /**
+     * Get everything appended so far
+     *
+     * @return the appended characters
+     */
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    /**
+     * Append a non-negative number, padded with leading zeros
+     *
+     * @param value the number
+     * @param minDigits the least number of digits to write
+     */
+    private void appendDigits(long value, int minDigits) {
+        int digits = 1;
+
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+
+        digits = Math.max(digits, minDigits);
+        ensureCapacity(digits);
+
+        // Fill from the right
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+
+        length += digits;
+    }
+
+    /**
+     * Grow the buffer if needed
+     *
+     * @param extra the number of characters about to be appended
+     */
+    private void ensureCapacity(int extra) {
+        if (length + extra > buffer.length) {
+            char[] grown = new char[Math.max(buffer.length * 2, length + extra)];
+            System.arraycopy(buffer, 0, grown, 0, length);
+            buffer = grown;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package solution;
 
 import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 /**
  * An RRT for moving a goal box
@@ -19,33 +20,48 @@ public class GoalBoxRRT extends MoveableBoxRRT {
     /**
      * Construct a GoalBoxRRT
      *
+     * @param context the context of the solve this RRT is part of
      * @param initialBox the initial box
      * @param goalBox the goal box
      */
-    public GoalBoxRRT(MoveableBox initialBox, MoveableBox goalBox) {
-        super(initialBox, null);
+    public GoalBoxRRT(PlanningContext context, MoveableBox initialBox, MoveableBox goalBox) {
+        this(context, initialBox, goalBox, context.splitRandom());
+    }
+
+    /**
+     * Construct a GoalBoxRRT that samples from its own generator
+     *
+     * @param context the context of the solve this RRT is part of
+     * @param initialBox the initial box
+     * @param goalBox the goal box
+     * @param random the generator to sample new states with
+     */
+    public GoalBoxRRT(PlanningContext context, MoveableBox initialBox, MoveableBox goalBox,
+            SplittableRandom random) {
+        super(context, initialBox, null, random);
         this.goalBox = goalBox;
     }
 
     /**
      * Check if a solution is valid. The box must be able to connect to the goal.
      *
-     * @param newestNode the newest node created by exploring
+     * @param newestNode the index of the newest node created by exploring
      *
      * @return whether the solution is valid or not
      */
     @Override
-    protected boolean checkMoveableBoxPath(
-            TreeNode<MoveableBoxState, MoveableBoxAction> newestNode) {
-        try {
-            // Try to connect to the goal
-            solutionNode = connectNodeToState(newestNode, new MoveableBoxState(goalBox), true);
-
-            return true;
-        } catch (InvalidStateException e) {
+    protected boolean checkMoveableBoxPath(int newestNode) {
+        // Try to connect to the goal
+        int goalNode = tryConnectNodeToState(newestNode, new MoveableBoxState(goalBox));
+
+        if (goalNode == -1) {
             // Couldn't connect to the goal
             return false;
         }
+
+        setSolution(goalNode);
+
+        return true;
     }
 
     /**
@@ -65,7 +81,7 @@ public class GoalBoxRRT extends MoveableBoxRRT {
      */
     @Override
     protected void pushBoxInWorkspace(MoveableBox boxToPush) {
-        Workspace.getInstance().pushGoalBox(boxToPush);
+        context.getWorkspace().pushGoalBox(boxToPush);
     }
 
     /**
@@ -75,7 +91,7 @@ public class GoalBoxRRT extends MoveableBoxRRT {
      */
     @Override
     protected void finishPushBoxInWorkspace(MoveableBox newPosition) {
-        Workspace.getInstance().finishPushGoalBox(newPosition);
+        context.getWorkspace().finishPushGoalBox(newPosition);
     }
 
     /**
@@ -123,7 +139,7 @@ public class GoalBoxRRT extends MoveableBoxRRT {
      * @return the obstacles to avoid
      */
     @Override
-    public ArrayList<Box> getObstacles() {
-        return Workspace.getInstance().getStaticObstacles();
+    public ObstacleGrid getObstacles() {
+        return context.getWorkspace().getStaticObstacleGrid();
     }
 }
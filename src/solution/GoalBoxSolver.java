@@ -7,7 +7,16 @@ import problem.StaticObstacle;
 
 import java.awt.geom.Point2D;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class GoalBoxSolver {
     /**
@@ -31,13 +40,65 @@ public class GoalBoxSolver {
     private Robot robotStartingPosition;
 
     /**
-     * Construct a goal box solver with a problem file
+     * The context everything in this solve works on
+     */
+    private PlanningContext context;
+
+    /**
+     * Number of times in a row the plan can fail without progress before it is started again from
+     * scratch
+     */
+    private static final int MAX_REPAIRS = 3;
+
+    /**
+     * The solved goal box RRTs, by goal box index. Null where a goal box still needs a path.
+     */
+    private ArrayList<GoalBoxRRT> goalBoxRRTs;
+
+    /**
+     * The goal box RRTs in the order they are moved, or null if not yet ordered
+     */
+    private ArrayList<GoalBoxRRT> orderedRRTList;
+
+    /**
+     * The robot paths of the stages planned so far. The first half of the stages move the
+     * moveable obstacles out of each goal box's way, and the second half push the goal boxes.
+     * Each stage has its own version of the workspace in the context, so it can be undone alone.
+     */
+    private ArrayList<ArrayList<RobotAction>> stagePaths;
+
+    /**
+     * Number of failures since a stage was last planned
+     */
+    private int failuresWithoutProgress;
+
+    /**
+     * Whether to keep the successful parts of the plan after a failure, rather than starting again
+     */
+    private boolean repair;
+
+    /**
+     * Construct a goal box solver with a problem file, and a new context
      *
      * @param filename the filename to load the problem from
      *
      * @throws IOException if the file could not be loaded
      */
     public GoalBoxSolver(String filename) throws IOException {
+        this(filename, new PlanningContext());
+    }
+
+    /**
+     * Construct a goal box solver with a problem file
+     *
+     * @param filename the filename to load the problem from
+     * @param context the context to solve in. Its workspace is filled in from the file.
+     *
+     * @throws IOException if the file could not be loaded
+     */
+    public GoalBoxSolver(String filename, PlanningContext context) throws IOException {
+        this.context = context;
+
         // Load the file
         ProblemSpec ps = new ProblemSpec();
         ps.loadProblem(filename);
@@ -71,10 +132,11 @@ public class GoalBoxSolver {
         }
 
         // Set the workspace variables
-        Workspace.getInstance().setRobotWidth(ps.getRobotWidth());
-        Workspace.getInstance().setGoalBoxes(goalBoxes);
-        Workspace.getInstance().setMoveableObstacles(moveableObstacles);
-        Workspace.getInstance().setStaticObstacles(staticObstacles);
+        Workspace workspace = context.getWorkspace();
+        workspace.setRobotWidth(ps.getRobotWidth());
+        workspace.setGoalBoxes(goalBoxes);
+        workspace.setMoveableObstacles(moveableObstacles);
+        workspace.setStaticObstacles(staticObstacles);
 
         // Load the robot starting position
         RobotConfig robotConfig = ps.getInitialRobotConfig();
@@ -82,141 +144,486 @@ public class GoalBoxSolver {
         robotStartingPosition = new Robot(robotConfig.getPos(), robotConfig.getOrientation(),
                 ps.getRobotWidth()
         );
+
+        // Nothing is planned yet
+        goalBoxRRTs = new ArrayList<>();
+
+        for (int i = 0; i < goalBoxes.size(); i++) {
+            goalBoxRRTs.add(null);
+        }
+
+        stagePaths = new ArrayList<>();
+        repair = true;
     }
 
     /**
-     * Solve the problem
+     * Solve the problem. Whatever was planned successfully by earlier calls is kept, so after a
+     * failure this only plans the parts that are missing.
      *
      * @return the robot path
+     *
+     * @throws NoPathException if part of the plan failed. The failed part is discarded, and the
+     * whole plan is discarded if it has failed too many times in a row.
      */
     public ArrayList<RobotAction> solve() throws NoPathException {
-        ArrayList<GoalBoxRRT> rrtList = new ArrayList<>();
-        ArrayList<TreeNode<MoveableBoxState, MoveableBoxAction>> rrtSolutions = new ArrayList<>();
+        try {
+            solveGoalBoxes();
+            orderGoalBoxes();
+            solveStages();
+        } catch (NoPathException e) {
+            resetIfStuck();
+            throw e;
+        }
 
-        for (int i = 0; i < Workspace.getInstance().getGoalBoxes().size(); i++) {
-            GoalBoxRRT rrt = new GoalBoxRRT(Workspace.getInstance().getGoalBoxes().get(i),
-                    goalBoxGoalPositions.get(i)
-            );
+        ArrayList<RobotAction> robotPath = new ArrayList<>();
 
-            rrtList.add(rrt);
+        for (ArrayList<RobotAction> stagePath : stagePaths) {
+            robotPath.addAll(stagePath);
+        }
 
-//            MoveableBoxVisualiser visualiser = new MoveableBoxVisualiser();
-//            Window window = new Window(visualiser);
-//
-//            rrt.attachVisualiser(visualiser);
+        return robotPath;
+    }
 
-            if (rrt.solve()) {
-                rrtSolutions.add(rrt.getSolution());
-            } else {
-                throw new NoPathException("Couldn't find a path for a GoalBox.");
+    /**
+     * Discard the part of the plan containing an action that turned out to be invalid, and
+     * everything planned after it
+     *
+     * @param actionIndex the index in the robot path returned by solve of the invalid action, or
+     * -1 if unknown
+     */
+    public void repairFromAction(int actionIndex) {
+        int stageEnd = 0;
+
+        for (int stage = 0; stage < stagePaths.size() && actionIndex >= 0; stage++) {
+            stageEnd += stagePaths.get(stage).size();
+
+            if (actionIndex < stageEnd) {
+                undoStagesFrom(stage);
+                failuresWithoutProgress++;
+                resetIfStuck();
+                return;
+            }
+        }
+
+        // Don't know which part was wrong
+        reset();
+    }
+
+    /**
+     * Discard the whole plan, so the next solve starts from scratch
+     */
+    public void reset() {
+        undoStagesFrom(0);
+        orderedRRTList = null;
+
+        for (int i = 0; i < goalBoxRRTs.size(); i++) {
+            goalBoxRRTs.set(i, null);
+        }
+
+        failuresWithoutProgress = 0;
+    }
+
+    /**
+     * Set whether to keep the successful parts of the plan after a failure. If not, every failure
+     * starts again from scratch.
+     *
+     * @param repair whether to keep the successful parts
+     */
+    public void setRepair(boolean repair) {
+        this.repair = repair;
+    }
+
+    /**
+     * Start again from scratch if not repairing, or if replanning stages keeps failing. Failed
+     * goal box paths and orders aren't counted, since those are already replanned from scratch.
+     */
+    private void resetIfStuck() {
+        if (!repair || failuresWithoutProgress > MAX_REPAIRS) {
+            reset();
+        }
+    }
+
+    /**
+     * Find paths for the goal boxes that don't have one yet
+     *
+     * @throws NoPathException if any goal box has no path. The others are kept.
+     */
+    private void solveGoalBoxes() throws NoPathException {
+        ArrayList<Integer> unsolved = new ArrayList<>();
+
+        for (int i = 0; i < goalBoxRRTs.size(); i++) {
+            if (goalBoxRRTs.get(i) == null) {
+                unsolved.add(i);
             }
         }
 
-        // Order the list of RRTs based on which ones need to be solved first
-        ArrayList<GoalBoxRRT> orderedRRTList;
+        if (unsolved.isEmpty()) {
+            return;
+        }
+
+        // The goal box searches only read the static obstacles, so they run at once. Once one
+        // fails the rest stop at their next expansion.
+        AtomicBoolean failed = new AtomicBoolean(false);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(unsolved.size(), Runtime.getRuntime().availableProcessors())
+        );
+
+        NoPathException failure = null;
 
         try {
-            orderedRRTList = calculateRRTOrder(rrtList);
+            ArrayList<Future<GoalBoxRRT>> searches = new ArrayList<>();
+
+            for (int i : unsolved) {
+                MoveableBox initialBox = goalBoxes.get(i);
+                MoveableBox goalBox = goalBoxGoalPositions.get(i);
+
+                // Split the generators here so the result doesn't depend on which search runs
+                // first
+                SplittableRandom random = context.splitRandom();
+
+                searches.add(executor.submit(() -> solveGoalBox(initialBox, goalBox, random,
+                        failed
+                )));
+            }
+
+            // Wait for every search, keeping the ones that finished before the failure
+            for (int i = 0; i < searches.size(); i++) {
+                GoalBoxRRT rrt = searches.get(i).get();
+
+                if (rrt != null) {
+                    goalBoxRRTs.set(unsolved.get(i), rrt);
+                } else if (failure == null) {
+                    failure = new NoPathException("Couldn't find a path for a GoalBox.");
+                }
+            }
+        } catch (ExecutionException e) {
+            failed.set(true);
+
+            if (e.getCause() instanceof NoPathException) {
+                throw (NoPathException) e.getCause();
+            }
+
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            failed.set(true);
+            Thread.currentThread().interrupt();
+            throw new NoPathException("Interrupted while finding paths for the GoalBoxes.");
+        } finally {
+            executor.shutdown();
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Order the goal boxes if they haven't been already
+     *
+     * @throws NoPathException if there is no order. The paths causing the smallest cycle of
+     * conflicts are discarded.
+     */
+    private void orderGoalBoxes() throws NoPathException {
+        if (orderedRRTList != null) {
+            return;
+        }
+
+        try {
+            orderedRRTList = calculateRRTOrder(goalBoxRRTs);
         } catch (NoRRTOrderException e) {
-            // No order could be found, solving has failed
+            // Find new paths for the boxes that conflict, keeping the rest
+            for (int i : e.getCrossingPaths()) {
+                goalBoxRRTs.set(i, null);
+            }
+
             throw new NoPathException("No GoalBox ordering has no collision.", e);
         }
+    }
 
-        Robot previousRobotPosition = robotStartingPosition;
+    /**
+     * Plan the stages that haven't been planned yet, in order
+     *
+     * @throws NoPathException if a stage couldn't be planned. The stages before it are kept.
+     */
+    private void solveStages() throws NoPathException {
+        ArrayList<TreeNode<MoveableBoxState, MoveableBoxAction>> rrtSolutions = new ArrayList<>();
 
-        ArrayList<RobotAction> robotPath = new ArrayList<>();
+        for (GoalBoxRRT rrt : goalBoxRRTs) {
+            rrtSolutions.add(rrt.getSolution());
+        }
 
-        // Move moveable obstacles
-        for (GoalBoxRRT rrt : orderedRRTList) {
-            robotPath.addAll(rrt.solveMoveableObstacles(rrtSolutions, previousRobotPosition));
+        int goalBoxCount = orderedRRTList.size();
+
+        while (stagePaths.size() < 2 * goalBoxCount) {
+            int stage = stagePaths.size();
+
+            // Start where the last stage left the robot
+            Robot previousRobotPosition = robotStartingPosition;
+
+            for (ArrayList<RobotAction> stagePath : stagePaths) {
+                if (stagePath.size() > 0) {
+                    previousRobotPosition = stagePath.get(stagePath.size() - 1).getFinalRobot();
+                }
+            }
 
-            if (robotPath.size() > 0) {
-                previousRobotPosition = robotPath.get(robotPath.size() - 1).getFinalRobot();
+            // Give the stage its own version of the workspace
+            context.save();
+
+            try {
+                if (stage < goalBoxCount) {
+                    // Move moveable obstacles
+                    stagePaths.add(orderedRRTList.get(stage).solveMoveableObstacles(rrtSolutions,
+                            previousRobotPosition
+                    ));
+                } else {
+                    // Solve the robot path
+                    stagePaths.add(orderedRRTList.get(stage - goalBoxCount).solveRobotPath(
+                            previousRobotPosition
+                    ));
+                }
+            } catch (NoPathException e) {
+                context.undo();
+                failuresWithoutProgress++;
+                throw e;
             }
+
+            failuresWithoutProgress = 0;
         }
+    }
 
-        // Solve the robot path
-        for (GoalBoxRRT rrt : orderedRRTList) {
-            robotPath.addAll(rrt.solveRobotPath(previousRobotPosition));
+    /**
+     * Discard a stage and the stages after it, along with their versions of the workspace
+     *
+     * @param stage the first stage to discard
+     */
+    private void undoStagesFrom(int stage) {
+        while (stagePaths.size() > stage) {
+            stagePaths.remove(stagePaths.size() - 1);
+            context.undo();
+        }
+    }
 
-            if (robotPath.size() > 0) {
-                previousRobotPosition = robotPath.get(robotPath.size() - 1).getFinalRobot();
-            }
+    /**
+     * Find a path for a goal box. Runs on the solver's executor.
+     *
+     * @param initialBox the starting position of the goal box
+     * @param goalBox the final position of the goal box
+     * @param random the generator for this goal box's searches
+     * @param failed set when any goal box search fails
+     *
+     * @return the solved RRT, or null if no path was found
+     *
+     * @throws NoPathException if the RRT couldn't be created
+     */
+    private GoalBoxRRT solveGoalBox(MoveableBox initialBox, MoveableBox goalBox,
+            SplittableRandom random, AtomicBoolean failed) throws NoPathException {
+//        MoveableBoxVisualiser visualiser = new MoveableBoxVisualiser(context);
+//        Window window = new Window(visualiser);
+//
+//        rrt.attachVisualiser(visualiser);
+
+        GoalBoxRRT rrt;
+
+        try {
+            rrt = RRTPortfolio.solve(context.getPortfolioCopies(), () -> {
+                GoalBoxRRT copy = new GoalBoxRRT(context, initialBox, goalBox, random.split());
+                copy.cancelWhen(failed);
+
+                return copy;
+            });
+        } catch (NoPathException e) {
+            failed.set(true);
+            throw e;
         }
 
-        return robotPath;
+        if (rrt == null) {
+            failed.set(true);
+            return null;
+        }
+
+        // Only the solution path is needed from here on
+        rrt.compact();
+
+        return rrt;
     }
 
     /**
      * Calculate the order of the RRT list so that each one is solvable without colliding with the
-     * previous
+     * others. A box must be moved before another if its path crosses the other's starting
+     * position, or after it if its path crosses the other's goal position. These conflicts form a
+     * graph, which is sorted topologically.
      *
      * @param rrtList the unordered list of RRTs
      *
      * @return the ordered list of RRTs
      *
-     * @throws NoRRTOrderException if no order could be found
+     * @throws NoRRTOrderException if no order could be found. The exception holds the smallest
+     * cycle of conflicts.
      */
-    private ArrayList<GoalBoxRRT> calculateRRTOrder(ArrayList<GoalBoxRRT> rrtList)
+    ArrayList<GoalBoxRRT> calculateRRTOrder(ArrayList<GoalBoxRRT> rrtList)
             throws NoRRTOrderException {
-        if (rrtList.size() == 1) {
-            return rrtList;
+        int count = rrtList.size();
+
+        // mustPrecede[a][b] is the reason box a must be moved before box b, or null if it needn't
+        String[][] mustPrecede = new String[count][count];
+
+        // crossingPath[a][b] is the box whose path makes box a have to be moved before box b
+        int[][] crossingPath = new int[count][count];
+
+        for (int i = 0; i < count; i++) {
+            // Only walk each solution path once
+            ArrayList<solution.Box> movementBoxes = new ArrayList<>();
+
+            for (MoveableBoxAction action : rrtList.get(i).getSolution().actionPathFromRoot()) {
+                movementBoxes.add(action.getMovementBox());
+            }
+
+            for (int j = 0; j < count; j++) {
+                if (i == j) {
+                    continue;
+                }
+
+                for (solution.Box movementBox : movementBoxes) {
+                    if (mustPrecede[i][j] == null &&
+                                movementBox.intersects(rrtList.get(j).getGoalBox())) {
+                        mustPrecede[i][j] = "box " + i + "'s path crosses box " + j + "'s goal";
+                        crossingPath[i][j] = i;
+                    }
+
+                    if (mustPrecede[j][i] == null &&
+                                movementBox.intersects(rrtList.get(j).getInitialBox())) {
+                        mustPrecede[j][i] = "box " + i + "'s path crosses box " + j + "'s start";
+                        crossingPath[j][i] = i;
+                    }
+                }
+            }
         }
 
-        for (GoalBoxRRT rrt : rrtList) {
-            // Remove rrt from the list
-            ArrayList<GoalBoxRRT> remaining = new ArrayList<>(rrtList);
-            remaining.remove(rrt);
+        // Repeatedly take the lowest numbered box with nothing left that must precede it
+        ArrayList<GoalBoxRRT> order = new ArrayList<>();
+        boolean[] placed = new boolean[count];
 
-            ArrayList<GoalBoxRRT> order;
+        while (order.size() < count) {
+            int next = -1;
 
-            // Pick an order for the remaining items
-            order = calculateRRTOrder(remaining);
+            for (int b = 0; b < count && next == -1; b++) {
+                if (!placed[b]) {
+                    boolean ready = true;
 
-            // Add the item to the ordered list
-            order.add(rrt);
+                    for (int a = 0; a < count && ready; a++) {
+                        ready = placed[a] || mustPrecede[a][b] == null;
+                    }
+
+                    if (ready) {
+                        next = b;
+                    }
+                }
+            }
 
-            if (checkRRTOrder(order)) {
-                // This order is valid
-                return order;
+            if (next == -1) {
+                // Everything left is waiting on something else
+                throw conflictCycleException(mustPrecede, crossingPath, placed);
             }
+
+            placed[next] = true;
+            order.add(rrtList.get(next));
         }
 
-        // No way to order this list
-        throw new NoRRTOrderException();
+        return order;
     }
 
     /**
-     * Check if an ordering of RRTs is valid
+     * Create an exception describing the smallest cycle of conflicts between the boxes that
+     * couldn't be ordered
      *
-     * @param rrtList the list of RRTs
+     * @param mustPrecede the reason each box must be moved before each other box, or null
+     * @param crossingPath the box whose path causes each conflict
+     * @param placed which boxes have already been ordered
      *
-     * @return whether the order is valid or not
+     * @return the exception
      */
-    private boolean checkRRTOrder(ArrayList<GoalBoxRRT> rrtList) {
-        for (int i = 0; i < rrtList.size(); i++) {
-            for (int j = 0; j < rrtList.size(); j++) {
-                if (j < i) {
-                    // Check to make sure #i doesn't intersect #j's final position
-                    for (MoveableBoxAction action :
-                            rrtList.get(i).getSolution().actionPathFromRoot()) {
-                        if (action.getMovementBox().intersects(rrtList.get(j).getGoalBox())) {
-                            return false;
-                        }
+    private NoRRTOrderException conflictCycleException(String[][] mustPrecede,
+            int[][] crossingPath, boolean[] placed) {
+        int count = placed.length;
+        ArrayList<Integer> shortestCycle = null;
+
+        // Breadth first search from each box back to itself
+        for (int start = 0; start < count; start++) {
+            if (placed[start]) {
+                continue;
+            }
+
+            int[] previous = new int[count];
+            Arrays.fill(previous, -1);
+
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(start);
+
+            int last = -1;
+
+            while (!queue.isEmpty() && last == -1) {
+                int current = queue.poll();
+
+                for (int next = 0; next < count; next++) {
+                    if (placed[next] || mustPrecede[current][next] == null) {
+                        continue;
+                    }
+
+                    if (next == start) {
+                        last = current;
+                        break;
                     }
-                } else if (j > i) {
-                    // Check to make sure #i doesn't intersect #j's starting position
-                    for (MoveableBoxAction action :
-                            rrtList.get(i).getSolution().actionPathFromRoot()) {
-                        if (action.getMovementBox().intersects(rrtList.get(j).getInitialBox())) {
-                            return false;
-                        }
+
+                    if (previous[next] == -1) {
+                        previous[next] = current;
+                        queue.add(next);
                     }
                 }
             }
+
+            if (last == -1) {
+                continue;
+            }
+
+            ArrayList<Integer> cycle = new ArrayList<>();
+
+            for (int box = last; box != start; box = previous[box]) {
+                cycle.add(box);
+            }
+
+            cycle.add(start);
+            Collections.reverse(cycle);
+
+            if (shortestCycle == null || cycle.size() < shortestCycle.size()) {
+                shortestCycle = cycle;
+            }
         }
 
-        return true;
+        // There is always a cycle when no box is ready
+        StringBuilder message = new StringBuilder("Goal boxes conflict in a cycle:");
+        ArrayList<Integer> crossingPaths = new ArrayList<>();
+
+        for (int i = 0; i < shortestCycle.size(); i++) {
+            int from = shortestCycle.get(i);
+            int to = shortestCycle.get((i + 1) % shortestCycle.size());
+
+            message.append(i == 0 ? " " : ", ").append(mustPrecede[from][to]);
+
+            if (!crossingPaths.contains(crossingPath[from][to])) {
+                crossingPaths.add(crossingPath[from][to]);
+            }
+        }
+
+        return new NoRRTOrderException(message.toString(), shortestCycle, crossingPaths);
+    }
+
+    /**
+     * Get the context everything in this solve works on
+     *
+     * @return the context
+     */
+    public PlanningContext getContext() {
+        return context;
     }
 
     /**
@@ -0,0 +1,198 @@
+package solution;
+
+import java.util.Arrays;
+
+import static java.lang.Math.abs;
+
+/**
+ * A nearest node index backed by a 2D k-d tree over the index points of the states (see
+ * State.getIndexX and State.getIndexY). Since the straight line distance between index points is
+ * never more than the distance between states, whole branches of the tree can be skipped while
+ * still returning exactly the node a linear scan would. Nodes are added in tree order, so each
+ * node's index in the tree is also its id in the arrays below.
+ *
+ * @param <T> the state class
+ * @param <U> the action class
+ */
+public class KdTreeNearestNodeIndex<T extends State<T>, U> implements NearestNodeIndex<T, U> {
+    /**
+     * Slack allowed when pruning a branch, to absorb rounding differences between the index point
+     * distance and State.distanceTo
+     */
+    private static final double PRUNE_TOLERANCE = 1e-9;
+
+    /**
+     * The tree the nodes are in
+     */
+    private CompactTree<T, U> tree;
+
+    /**
+     * The state of the first node, which a linear scan compares against first
+     */
+    private T firstState;
+
+    /**
+     * The number of nodes in the index
+     */
+    private int size;
+
+    /**
+     * Index point x of each node
+     */
+    private double[] xs;
+
+    /**
+     * Index point y of each node
+     */
+    private double[] ys;
+
+    /**
+     * Id of the left (lower) child of each node in the k-d tree, -1 if none
+     */
+    private int[] left;
+
+    /**
+     * Id of the right (greater or equal) child of each node in the k-d tree, -1 if none
+     */
+    private int[] right;
+
+    /**
+     * Best node id found by the current search
+     */
+    private int bestId;
+
+    /**
+     * Distance to the best node found by the current search
+     */
+    private double bestDistance;
+
+    /**
+     * Construct an empty index over a tree
+     *
+     * @param tree the tree the nodes are in
+     */
+    public KdTreeNearestNodeIndex(CompactTree<T, U> tree) {
+        this.tree = tree;
+        size = 0;
+        xs = new double[64];
+        ys = new double[64];
+        left = new int[64];
+        right = new int[64];
+    }
+
+    /**
+     * Add a node to the index
+     *
+     * @param node the index of the node in the tree
+     */
+    @Override
+    public void add(int node) {
+        int id = size++;
+
+        // Grow the arrays if needed
+        if (id == xs.length) {
+            xs = Arrays.copyOf(xs, id * 2);
+            ys = Arrays.copyOf(ys, id * 2);
+            left = Arrays.copyOf(left, id * 2);
+            right = Arrays.copyOf(right, id * 2);
+        }
+
+        xs[id] = tree.getIndexX(node);
+        ys[id] = tree.getIndexY(node);
+        left[id] = -1;
+        right[id] = -1;
+
+        if (id == 0) {
+            firstState = tree.getState(node);
+            return;
+        }
+
+        // Walk down from the root, alternating x and y, until there's a free slot
+        int current = 0;
+        boolean splitOnX = true;
+
+        while (true) {
+            boolean goLeft = splitOnX ? xs[id] < xs[current] : ys[id] < ys[current];
+            int next = goLeft ? left[current] : right[current];
+
+            if (next == -1) {
+                if (goLeft) {
+                    left[current] = id;
+                } else {
+                    right[current] = id;
+                }
+
+                return;
+            }
+
+            current = next;
+            splitOnX = !splitOnX;
+        }
+    }
+
+    /**
+     * Find the nearest node in the tree to a given state. Returns the same node as
+     * LinearNearestNodeIndex.
+     *
+     * @param state the state to find the node nearest to
+     *
+     * @return the index of the nearest node in the tree
+     */
+    @Override
+    public int nearest(T state) {
+        bestId = -1;
+        bestDistance = Double.POSITIVE_INFINITY;
+        search(0, true, state, state.getIndexX(), state.getIndexY());
+
+        // The linear scan starts from the first node's distance to the state, so only a strictly
+        // closer node replaces it
+        if (bestDistance < state.distanceTo(firstState)) {
+            return bestId;
+        }
+
+        return 0;
+    }
+
+    /**
+     * Search a branch of the k-d tree for the nearest node. Ties go to the node added first.
+     *
+     * @param id the id of the node at the top of the branch
+     * @param splitOnX whether this node splits on x or y
+     * @param state the state to find the node nearest to
+     * @param x the index point x of the state
+     * @param y the index point y of the state
+     */
+    private void search(int id, boolean splitOnX, T state, double x, double y) {
+        if (id == -1) {
+            return;
+        }
+
+        double distance = tree.distance(id, state);
+
+        if (distance < bestDistance || (distance == bestDistance && id < bestId)) {
+            bestDistance = distance;
+            bestId = id;
+        }
+
+        double offset = splitOnX ? x - xs[id] : y - ys[id];
+        int near = offset < 0 ? left[id] : right[id];
+        int far = offset < 0 ? right[id] : left[id];
+
+        search(near, !splitOnX, state, x, y);
+
+        // Every node on the far side is at least abs(offset) away
+        if (abs(offset) - PRUNE_TOLERANCE <= bestDistance) {
+            search(far, !splitOnX, state, x, y);
+        }
+    }
+
+    /**
+     * Get the number of nodes in the index
+     *
+     * @return the number of nodes
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,74 @@
+package solution;
+
+/**
+ * A nearest node index that scans every node. Used as the reference for other indexes.
+ *
+ * @param <T> the state class
+ * @param <U> the action class
+ */
+public class LinearNearestNodeIndex<T extends State<T>, U> implements NearestNodeIndex<T, U> {
+    /**
+     * The tree the nodes are in
+     */
+    private CompactTree<T, U> tree;
+
+    /**
+     * The number of nodes in the index. Nodes are added in tree order, so these are the first
+     * nodes of the tree.
+     */
+    private int size;
+
+    /**
+     * Construct an empty index over a tree
+     *
+     * @param tree the tree the nodes are in
+     */
+    public LinearNearestNodeIndex(CompactTree<T, U> tree) {
+        this.tree = tree;
+        size = 0;
+    }
+
+    /**
+     * Add a node to the index
+     *
+     * @param node the index of the node in the tree
+     */
+    @Override
+    public void add(int node) {
+        size++;
+    }
+
+    /**
+     * Find the nearest node in the tree to a given state. Uses straight line distance
+     *
+     * @param state the state to find the node nearest to
+     *
+     * @return the index of the nearest node in the tree
+     */
+    @Override
+    public int nearest(T state) {
+        int bestNode = 0;
+        double shortestDistance = state.distanceTo(tree.getState(0));
+
+        for (int node = 0; node < size; node++) {
+            double distance = tree.distance(node, state);
+
+            if (distance < shortestDistance) {
+                shortestDistance = distance;
+                bestNode = node;
+            }
+        }
+
+        return bestNode;
+    }
+
+    /**
+     * Get the number of nodes in the index
+     *
+     * @return the number of nodes
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -11,47 +11,75 @@ public class Main {
      * Solves a problem specified by an input file and saves the solution to an output file
      *
      * @param args the input arguments. args[0] is the problem filename and args[1] is the output
-     * filename
+     * filename. Optional flags follow: "--portfolio k" races k copies of each RRT on separate
+     * threads, "--seed n" seeds the solve so a run can be replayed, "--no-repair" starts
+     * again from scratch after a failure instead of only replanning the part that failed,
+     * "--decimals n" writes the solution with n decimal places, and "--step-margin m" keeps back
+     * the fraction m of the tester's largest step.
      */
     public static void main(String[] args) {
         GoalBoxSolver solver;
+        PlanningContext context = new PlanningContext();
+        boolean repair = true;
+
+        // Read the optional flags. The seed is read first, since the other settings are made on
+        // the context it creates.
+        try {
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equals("--seed")) {
+                    context = new PlanningContext(Long.parseLong(args[++i]));
+                }
+            }
+
+            for (int i = 2; i < args.length; i++) {
+                if (args[i].equals("--portfolio")) {
+                    context.setPortfolioCopies(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("--seed")) {
+                    i++;
+                } else if (args[i].equals("--no-repair")) {
+                    repair = false;
+                } else if (args[i].equals("--decimals")) {
+                    context.setDecimals(Integer.parseInt(args[++i]));
+                } else if (args[i].equals("--step-margin")) {
+                    context.setStepMargin(Double.parseDouble(args[++i]));
+                } else {
+                    throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.out.println("Invalid option");
+            e.printStackTrace();
+            return;
+        }
 
         // Load the problem file
         try {
-            solver = new GoalBoxSolver(args[0]);
+            solver = new GoalBoxSolver(args[0], context);
         } catch (IOException | ArrayIndexOutOfBoundsException e) {
             System.out.println("Invalid input file");
             e.printStackTrace();
             return;
         }
 
+        solver.setRepair(repair);
+
+        // Print the seed so this run can be replayed
+        System.out.println("Seed: " + context.getSeed());
+
         long time = System.currentTimeMillis();
 
         // Loop until a solution is found
         while (true) {
             try {
-                // Save a copy of the workspace
-                Workspace.save();
-
-                // Solve the problem
+                // Solve the problem. After a failure, this keeps what was already planned.
                 ArrayList<RobotAction> robotPath = solver.solve();
 
                 // Write to the output file
                 Outputter outputter = new Outputter(robotPath, solver.getMoveableObstacles(),
-                        solver.getGoalBoxes()
+                        solver.getGoalBoxes(), context
                 );
 
-                try {
-                    outputter.writeSolution(args[1]);
-                } catch (BoxLostException e) {
-                    // Try 1 more time
-                    try {
-                        outputter.writeSolution(args[1]);
-                    } catch (BoxLostException e2) {
-                        // Give up
-                        throw new BoxLostException();
-                    }
-                }
+                outputter.writeSolution(args[1]);
 
                 System.out.println("Solution found");
 
@@ -65,11 +93,14 @@ public class Main {
                 System.out.println("Invalid output file");
                 e.printStackTrace();
                 break;
-            } catch (NoPathException | BoxLostException e) {
-                // We lost a box or couldn't find a path, try again
+            } catch (NoPathException e) {
+                // Couldn't find a path, try again. The solver has discarded the part that failed.
                 e.printStackTrace();
-                Workspace.undo();
 //                break;
+            } catch (BoxLostException e) {
+                // We lost a box, replan from the part of the path that lost it
+                e.printStackTrace();
+                solver.repairFromAction(e.getActionIndex());
             }
         }
     }
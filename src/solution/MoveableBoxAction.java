@@ -41,6 +41,7 @@ public class MoveableBoxAction {
     /**
      * Move moveable obstacles out of the way
      *
+     * @param context the context of the solve
      * @param solutionNodes the solutions of the trees above
      * @param previousRobotPosition the previous position of the robot
      * @param attachVisualisers whether to attach visualisers to the moveable obstacle RRTs.
@@ -49,7 +50,7 @@ public class MoveableBoxAction {
      *
      * @throws NoPathException if this cannot be done
      */
-    public ArrayList<RobotAction> moveBoxesOutOfPath(
+    public ArrayList<RobotAction> moveBoxesOutOfPath(PlanningContext context,
             ArrayList<TreeNode<MoveableBoxState, MoveableBoxAction>> solutionNodes,
             Robot previousRobotPosition,
             boolean attachVisualisers) throws NoPathException {
@@ -58,7 +59,7 @@ public class MoveableBoxAction {
         ArrayList<MoveableBox> boxesToMove = new ArrayList<>();
 
         // Check if any of the moveable obstacles intersect this movement
-        for (MoveableBox moveableObstacle : Workspace.getInstance().getMoveableObstacles()) {
+        for (MoveableBox moveableObstacle : context.getWorkspace().getMoveableObstacles()) {
             if (moveableObstacle.intersects(movementBox)) {
                 boxesToMove.add(moveableObstacle);
             }
@@ -74,20 +75,26 @@ public class MoveableBoxAction {
 
         // Move each box out of the way
         for (MoveableBox box : boxesToMove) {
-            // Create an RRT to move the box out of the way
-            MoveableObstacleRRT obstacleRRT = new MoveableObstacleRRT(box, previousRobotPosition,
-                    solutionNodes
-            );
+            Robot robotStartingPosition = previousRobotPosition;
+            int copies = context.getPortfolioCopies();
 
-            // Attach a visualiser if it is required
-            if (attachVisualisers) {
-                Visualiser visualiser = new MoveableBoxVisualiser();
-                Window window = new Window(visualiser);
-                obstacleRRT.attachVisualiser(visualiser);
-            }
+            // Create an RRT to move the box out of the way, and solve it
+            MoveableObstacleRRT obstacleRRT = RRTPortfolio.solve(copies, () -> {
+                MoveableObstacleRRT rrt = new MoveableObstacleRRT(context, box,
+                        robotStartingPosition, solutionNodes
+                );
+
+                // Attach a visualiser if it is required
+                if (attachVisualisers) {
+                    MoveableBoxVisualiser visualiser = new MoveableBoxVisualiser(context);
+                    Window window = new Window(visualiser);
+                    rrt.attachVisualiser(visualiser);
+                }
 
-            // Solve the RRT
-            if (obstacleRRT.solve()) {
+                return rrt;
+            });
+
+            if (obstacleRRT != null) {
                 ArrayList<RobotAction> obstacleRobotPath = obstacleRRT.getRobotPath();
 
                 // Set the previous robot position to the end of the latest path
@@ -98,9 +105,12 @@ public class MoveableBoxAction {
                 robotPath.addAll(obstacleRobotPath);
 
                 // Make the moved box static
-                Workspace.getInstance().finishPush(
+                context.getWorkspace().finishPush(
                         obstacleRRT.getSolution().getState().getMainBox()
                 );
+
+                // Only the solution path is needed from here on
+                obstacleRRT.compact();
             } else {
                 throw new NoPathException(
                         "Couldn't find a path to move a MoveableObstacle out of the way."
@@ -141,9 +151,11 @@ public class MoveableBoxAction {
     /**
      * Get the position of the robot required to initiate pushing the box
      *
+     * @param robotWidth the width of the robot
+     *
      * @return the initial position of the robot
      */
-    private Robot getRobotPushingPosition() {
+    private Robot getRobotPushingPosition(double robotWidth) {
         return new Robot(
                 new Point2D.Double(
                         initialBox.getRect().getCenterX() +
@@ -152,17 +164,19 @@ public class MoveableBoxAction {
                                 -signum(getDy()) * (initialBox.getRect().getHeight() / 2)
                 ),
                 getDx() == 0 ? 0 : PI / 2,
-                Workspace.getInstance().getRobotWidth()
+                robotWidth
         );
     }
 
     /**
      * Get the position of the robot after the push
      *
+     * @param robotWidth the width of the robot
+     *
      * @return the final position of the robot
      */
-    private Robot getFinalRobotPosition() {
-        Robot initialRobot = getRobotPushingPosition();
+    private Robot getFinalRobotPosition(double robotWidth) {
+        Robot initialRobot = getRobotPushingPosition(robotWidth);
         initialRobot.move(getDx(), getDy(), 0);
         return initialRobot;
     }
@@ -171,26 +185,42 @@ public class MoveableBoxAction {
      * Calculate the path for the robot to move to get to the start of this action and push the box.
      * If previousRobotPosition is null, the path will only contain the action to push the box.
      *
+     * @param context the context of the solve
      * @param previousRobotPosition the starting position of the robot
      *
      * @throws NoPathException if no path could be found
      */
-    public void solveRobotPath(Robot previousRobotPosition) throws NoPathException {
-        Robot pushingPosition = getRobotPushingPosition();
-
-        // Create an RRT for the robot
-        RobotRRT rrt = new RobotRRT(previousRobotPosition, pushingPosition, initialBox);
-
-        // Solve the rrt
-        if (rrt.solve()) {
-            robotPath = rrt.getSolution().actionPathFromRoot();
-        } else {
-            // No path found
-            throw new NoPathException("Couldn't find a path for the robot.");
+    public void solveRobotPath(PlanningContext context, Robot previousRobotPosition)
+            throws NoPathException {
+        double robotWidth = context.getWorkspace().getRobotWidth();
+        Robot pushingPosition = getRobotPushingPosition(robotWidth);
+
+        // Try the shared roadmap first, it's usually already checked around the robot
+        robotPath = context.getRoadmap().findPath(context.getWorkspace(), previousRobotPosition,
+                pushingPosition, initialBox
+        );
+
+        if (robotPath == null) {
+            // Create an RRT for the robot and solve it. The pushing position is tight against the
+            // box, so grow a tree from it as well
+            RobotRRT rrt = RRTPortfolio.solve(context.getPortfolioCopies(),
+                    () -> new RobotRRT(context, previousRobotPosition, pushingPosition, initialBox,
+                            true
+                    )
+            );
+
+            if (rrt != null) {
+                robotPath = rrt.getSolution().actionPathFromRoot();
+            } else {
+                // No path found
+                throw new NoPathException("Couldn't find a path for the robot.");
+            }
         }
 
         // Add the action that moves the box
-        robotPath.add(new RobotAction(pushingPosition, getFinalRobotPosition(), initialBox));
+        robotPath.add(new RobotAction(pushingPosition, getFinalRobotPosition(robotWidth),
+                initialBox
+        ));
     }
 
     /**
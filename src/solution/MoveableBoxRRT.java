@@ -1,8 +1,7 @@
 package solution;
 
 import java.util.ArrayList;
-
-import static java.lang.Math.random;
+import java.util.SplittableRandom;
 
 /**
  * An RRT for moving any moveable box
@@ -26,29 +25,45 @@ public abstract class MoveableBoxRRT extends RRT<MoveableBoxState, MoveableBoxAc
     /**
      * Construct a MoveableBoxRRT
      *
+     * @param context the context of the solve this RRT is part of
      * @param initialBox the box to move
      * @param robotStartingPosition the robot's starting position
      */
-    public MoveableBoxRRT(MoveableBox initialBox, Robot robotStartingPosition) {
+    public MoveableBoxRRT(PlanningContext context, MoveableBox initialBox,
+            Robot robotStartingPosition) {
+        this(context, initialBox, robotStartingPosition, context.splitRandom());
+    }
+
+    /**
+     * Construct a MoveableBoxRRT that samples from its own generator
+     *
+     * @param context the context of the solve this RRT is part of
+     * @param initialBox the box to move
+     * @param robotStartingPosition the robot's starting position
+     * @param random the generator to sample new states with
+     */
+    public MoveableBoxRRT(PlanningContext context, MoveableBox initialBox,
+            Robot robotStartingPosition, SplittableRandom random) {
+        super(context, random);
+
         this.initialBox = initialBox;
         this.robotStartingPosition = robotStartingPosition;
 
         // Make an initial tree
-        tree = new TreeNode<>(new MoveableBoxState(initialBox), null);
-
-        // Add the root to nodes
-        nodes.add(tree);
+        createTree(new MoveableBoxStateCodec(initialBox.getRect().getWidth()),
+                new MoveableBoxState(initialBox)
+        );
     }
 
     /**
      * Check if a solution is valid
      *
-     * @param newestNode the most recent node added to the tree
+     * @param newestNode the index of the most recent node added to the tree
      *
      * @return whether the solution is valid or not
      */
     @Override
-    protected boolean checkSolution(TreeNode<MoveableBoxState, MoveableBoxAction> newestNode) {
+    protected boolean checkSolution(int newestNode) {
         return checkMoveableBoxPath(newestNode) && finishSolution();
     }
 
@@ -62,105 +77,127 @@ public abstract class MoveableBoxRRT extends RRT<MoveableBoxState, MoveableBoxAc
     /**
      * Check if the path for a moveable box is valid
      *
-     * @param newestNode the latest node added to the tree
+     * @param newestNode the index of the latest node added to the tree
      *
      * @return whether the path is valid or not
      */
-    protected abstract boolean checkMoveableBoxPath(
-            TreeNode<MoveableBoxState, MoveableBoxAction> newestNode);
+    protected abstract boolean checkMoveableBoxPath(int newestNode);
 
     /**
      * Attempt to connect a node to a state using only horizontal or vertical lines. Will only
      * attempt two movements (e.g. up then right).
      *
-     * @param node the parent node
+     * @param node the index of the parent node
      * @param state the child state
-     * @param addChild whether to add the new node to the tree or not
      *
-     * @return a new node containing the child state. Will return node if they are in the same
-     * place.
-     *
-     * @throws InvalidStateException if this is not possible
+     * @return the index of a new node containing the child state. Will return node if they are in
+     * the same place, and -1 if this is not possible.
      */
     @Override
-    protected TreeNode<MoveableBoxState, MoveableBoxAction> connectNodeToState(
-            TreeNode<MoveableBoxState, MoveableBoxAction> node, MoveableBoxState state,
-            boolean addChild) throws InvalidStateException {
-        double nodeX = node.getState().getMainBox().getRect().getX();
-        double nodeY = node.getState().getMainBox().getRect().getY();
+    protected int tryConnectNodeToState(int node, MoveableBoxState state) {
+        ArrayList<MoveableBoxState> path = tryConnectStates(tree.getState(node), state);
+
+        if (path == null) {
+            return -1;
+        }
+
+        // Add the states along the way to the tree, each a child of the last
+        for (MoveableBoxState pathState : path) {
+            node = addNode(node, pathState);
+        }
+
+        return node;
+    }
+
+    /**
+     * Attempt to connect one state to another using only horizontal or vertical lines. Will only
+     * attempt two movements (e.g. up then right). Helper function for tryConnectNodeToState, which
+     * only adds to the tree once the whole connection is known to be possible.
+     *
+     * @param from the state to start from
+     * @param state the state to connect to
+     *
+     * @return the states reached by each movement, ending with the child state. Will be empty if
+     * they are in the same place, and null if this is not possible.
+     */
+    private ArrayList<MoveableBoxState> tryConnectStates(MoveableBoxState from,
+            MoveableBoxState state) {
+        double nodeX = from.getMainBox().getRect().getX();
+        double nodeY = from.getMainBox().getRect().getY();
         double stateX = state.getMainBox().getRect().getX();
         double stateY = state.getMainBox().getRect().getY();
 
         double dx = stateX - nodeX;
         double dy = stateY - nodeY;
 
+        ArrayList<MoveableBoxState> path = new ArrayList<>();
+
         if (!(dx == 0 && dy == 0)) {
             if (dx == 0 || dy == 0) {
                 // Only requires one movement to get to child
 
-                // Check if the action is valid. Will throw an
-                // InvalidStateException if not.
-                TreeNode<MoveableBoxState, MoveableBoxAction> newNode = node.getState().action(
-                        dx, dy, getObstacles()
-                );
+                // Check if the action is valid. Will return null if not.
+                MoveableBoxState newState = from.tryMove(dx, dy, getSearchObstacles());
 
-                // Add the new node to the tree
-                if (addChild) {
-                    addChildNode(node, newNode);
+                if (newState == null) {
+                    return null;
                 }
 
-                return newNode;
+                path.add(newState);
             } else {
-                // Requires two movements to get to child. Call connectNodes
-                // again with the parent being a new node in between the current
-                // parent and child. Try both routes.
-
-                try {
-                    // First attempt. Corner node with (stateX, nodeY).
-                    // Will throw an InvalidStateException if it fails.
-                    TreeNode<MoveableBoxState, MoveableBoxAction> cornerNode = connectNodeToState(
-                            node, new MoveableBoxState(new MoveableBox(stateX, nodeY,
-                                    state.getMainBox().getRect().getWidth()
-                            )),
-                            false
-                    );
-
-                    // Now connect this corner node to the state.
-                    // Will throw an InvalidStateException if it fails.
-                    TreeNode<MoveableBoxState, MoveableBoxAction> endNode = connectNodeToState(
-                            cornerNode, state, true
-                    );
-
-                    // Add the corner node as a child of the parent node
-                    addChildNode(node, cornerNode);
-
-                    return endNode;
-                } catch (InvalidStateException e) {
-                    // Second attempt. Corner node with (nodeX, stateY).
-                    // Will throw an InvalidStateException if it fails.
-                    TreeNode<MoveableBoxState, MoveableBoxAction> cornerNode = connectNodeToState(
-                            node, new MoveableBoxState(new MoveableBox(nodeX, stateY,
-                                    state.getMainBox().getRect().getWidth()
-                            )),
-                            false
-                    );
-
-                    // Now connect this corner node to the state.
-                    // Will throw an InvalidStateException if it fails.
-                    TreeNode<MoveableBoxState, MoveableBoxAction> endNode = connectNodeToState(
-                            cornerNode, state, true
-                    );
-
-                    // Add the corner node as a child of the parent node
-                    addChildNode(node, cornerNode);
-
-                    return endNode;
+                // Requires two movements to get to child. Connect through a corner in between
+                // the current parent and child. Try both routes.
+
+                // First attempt. Corner with (stateX, nodeY).
+                path = connectViaCorner(from, state, stateX, nodeY);
+
+                if (path == null) {
+                    // Second attempt. Corner with (nodeX, stateY).
+                    path = connectViaCorner(from, state, nodeX, stateY);
                 }
             }
         }
 
-        // They're already in the same place. Just return the node
-        return node;
+        // An empty path means they're already in the same place
+        return path;
+    }
+
+    /**
+     * Attempt to connect one state to another through a corner. Helper function for
+     * tryConnectStates.
+     *
+     * @param from the state to start from
+     * @param state the state to connect to
+     * @param cornerX the x position of the corner
+     * @param cornerY the y position of the corner
+     *
+     * @return the states reached by each movement, ending with the child state, or null if this is
+     * not possible
+     */
+    private ArrayList<MoveableBoxState> connectViaCorner(MoveableBoxState from,
+            MoveableBoxState state, double cornerX, double cornerY) {
+        ArrayList<MoveableBoxState> path = tryConnectStates(from,
+                new MoveableBoxState(new MoveableBox(cornerX, cornerY,
+                        state.getMainBox().getRect().getWidth()
+                ))
+        );
+
+        if (path == null) {
+            return null;
+        }
+
+        // Now connect the corner to the state
+        ArrayList<MoveableBoxState> endPath = tryConnectStates(
+                path.isEmpty() ? from : path.get(path.size() - 1), state
+        );
+
+        if (endPath == null) {
+            return null;
+        }
+
+        path.addAll(endPath);
+
+        return path;
     }
 
     /**
@@ -187,7 +224,7 @@ public abstract class MoveableBoxRRT extends RRT<MoveableBoxState, MoveableBoxAc
             // Move the moveable obstacles out of the way, and attach a visualiser if this RRT
             // has one attached.
             ArrayList<RobotAction> obstacleRobotPath = currentNode.getAction().moveBoxesOutOfPath(
-                    getSolutionLeaves(), previousRobotPosition, visualiserAttached()
+                    context, getSolutionLeaves(), previousRobotPosition, visualiserAttached()
             );
 
             if (obstacleRobotPath.size() > 0) {
@@ -244,7 +281,7 @@ public abstract class MoveableBoxRRT extends RRT<MoveableBoxState, MoveableBoxAc
         // Compute all the paths for each action
         for (MoveableBoxAction action : solutionNode.actionPathFromRoot()) {
             // Compute the path
-            action.solveRobotPath(previousRobotPosition);
+            action.solveRobotPath(context, previousRobotPosition);
 
             // Add the path
             robotPaths.addAll(action.getRobotPath());
@@ -284,15 +321,15 @@ public abstract class MoveableBoxRRT extends RRT<MoveableBoxState, MoveableBoxAc
     protected abstract void finishPushBoxInWorkspace(MoveableBox newPosition);
 
     /**
-     * Validate a state
+     * Check if a state is valid
      *
-     * @param state the state to validate
+     * @param state the state to check
      *
-     * @throws InvalidStateException if the state is invalid
+     * @return whether the state is valid or not
      */
     @Override
-    protected void validateState(MoveableBoxState state) throws InvalidStateException {
-        state.validate(getObstacles());
+    protected boolean isStateValid(MoveableBoxState state) {
+        return state.isValid(getSearchObstacles());
     }
 
     /**
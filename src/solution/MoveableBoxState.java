@@ -10,7 +10,7 @@ import static java.lang.Math.sin;
  * A state object, containing the location of a box needing to be moved. Could be a goal box or a
  * regular moveable box
  */
-public class MoveableBoxState extends State {
+public class MoveableBoxState extends State<MoveableBoxState> {
     /**
      * The box to move
      */
@@ -40,9 +40,70 @@ public class MoveableBoxState extends State {
      */
     public TreeNode<MoveableBoxState, MoveableBoxAction> action(double dx, double dy,
             ArrayList<Box> obstacles) throws InvalidStateException {
+        TreeNode<MoveableBoxState, MoveableBoxAction> newNode = tryAction(dx, dy, obstacles);
+
+        if (newNode == null) {
+            throw new InvalidStateException();
+        }
+
+        return newNode;
+    }
+
+    /**
+     * Moving from one state to another. Same as action, but reports an invalid move by returning
+     * null instead of throwing.
+     *
+     * @param dx x distance to move mainBox by
+     * @param dy y distance to move mainBox by
+     * @param obstacles the obstacles to avoid
+     *
+     * @return a new node containing the new state and the action to get to this state, or null if
+     * the new state is invalid or the move is in two directions
+     */
+    public TreeNode<MoveableBoxState, MoveableBoxAction> tryAction(double dx, double dy,
+            ArrayList<Box> obstacles) {
+        return tryAction(dx, dy, new ObstacleGrid(obstacles));
+    }
+
+    /**
+     * Moving from one state to another, checking against an obstacle index. Reports an invalid
+     * move by returning null.
+     *
+     * @param dx x distance to move mainBox by
+     * @param dy y distance to move mainBox by
+     * @param obstacles the obstacles to avoid
+     *
+     * @return a new node containing the new state and the action to get to this state, or null if
+     * the new state is invalid or the move is in two directions
+     */
+    public TreeNode<MoveableBoxState, MoveableBoxAction> tryAction(double dx, double dy,
+            ObstacleGrid obstacles) {
+        MoveableBoxState newState = tryMove(dx, dy, obstacles);
+
+        if (newState == null) {
+            return null;
+        }
+
+        // Create and return a new node with this new state and an action
+        return new TreeNode<>(newState, new MoveableBoxAction(
+                mainBox, newState.mainBox
+        ));
+    }
+
+    /**
+     * Moving from one state to another, checking against an obstacle index. Same as tryAction,
+     * but only creates the new state, for trees that rebuild their actions from the states.
+     *
+     * @param dx x distance to move mainBox by
+     * @param dy y distance to move mainBox by
+     * @param obstacles the obstacles to avoid
+     *
+     * @return the new state, or null if the new state is invalid or the move is in two directions
+     */
+    public MoveableBoxState tryMove(double dx, double dy, ObstacleGrid obstacles) {
         // Make sure the action is only in one direction
         if (dx != 0 && dy != 0) {
-            throw new InvalidStateException();
+            return null;
         }
 
         // Clone this state
@@ -56,13 +117,10 @@ public class MoveableBoxState extends State {
 
         // Check if this union is valid
         if (!union.isValid(obstacles)) {
-            throw new InvalidStateException();
+            return null;
         }
 
-        // Create and return a new node with this new state and an action
-        return new TreeNode<>(newState, new MoveableBoxAction(
-                mainBox, newState.mainBox
-        ));
+        return newState;
     }
 
     /**
@@ -79,6 +137,17 @@ public class MoveableBoxState extends State {
         return mainBox.isValid(obstacles);
     }
 
+    /**
+     * Check if the state is valid against an obstacle index
+     *
+     * @param obstacles the obstacles to avoid
+     *
+     * @return whether the state is valid or not
+     */
+    public boolean isValid(ObstacleGrid obstacles) {
+        return mainBox.isValid(obstacles);
+    }
+
     /**
      * Clone the state
      *
@@ -94,16 +163,32 @@ public class MoveableBoxState extends State {
      *
      * @param other the other state to compute the distance to
      *
-     * @return the distance between the states if other is a MoveableBoxState. -1 otherwise.
+     * @return the distance between the states
      */
     @Override
-    public double distanceTo(State other) {
-        if (other instanceof MoveableBoxState) {
-            MoveableBoxState moveableBoxState = (MoveableBoxState) other;
-            return mainBox.distanceTo(moveableBoxState.mainBox);
-        }
+    public double distanceTo(MoveableBoxState other) {
+        return mainBox.distanceTo(other.mainBox);
+    }
 
-        return -1;
+    /**
+     * Get the x value of the index point. This is the bottom left corner of the box, the same point
+     * distanceTo measures between.
+     *
+     * @return the box x position
+     */
+    @Override
+    public double getIndexX() {
+        return mainBox.getRect().getX();
+    }
+
+    /**
+     * Get the y value of the index point. This is the bottom left corner of the box.
+     *
+     * @return the box y position
+     */
+    @Override
+    public double getIndexY() {
+        return mainBox.getRect().getY();
     }
 
     /**
@@ -114,26 +199,17 @@ public class MoveableBoxState extends State {
      * @param delta the distance to move along the line between the two states
      *
      * @return the new state
-     *
-     * @throws InvalidStateException if other is not a MoveableBoxState
      */
     @Override
-    public MoveableBoxState stepTowards(State other, double delta) throws InvalidStateException {
-        // Make sure other is a MoveableBoxState
-        if (!(other instanceof MoveableBoxState)) {
-            throw new InvalidStateException();
-        }
-
-        MoveableBoxState moveableBoxState = (MoveableBoxState) other;
-
+    public MoveableBoxState tryStepTowards(MoveableBoxState other, double delta) {
         // No need to do anything
         if (distanceTo(other) <= delta) {
-            return (MoveableBoxState) other;
+            return other;
         }
 
         // The angle to move
-        double theta = atan2(moveableBoxState.mainBox.getRect().getY() - mainBox.getRect().getY(),
-                moveableBoxState.mainBox.getRect().getX() - mainBox.getRect().getX()
+        double theta = atan2(other.mainBox.getRect().getY() - mainBox.getRect().getY(),
+                other.mainBox.getRect().getX() - mainBox.getRect().getX()
         );
 
         MoveableBoxState newState = clone();
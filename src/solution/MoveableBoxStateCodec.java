@@ -0,0 +1,117 @@
+package solution;
+
+import static java.lang.Math.pow;
+import static java.lang.Math.sqrt;
+
+/**
+ * Stores a moveable box state as the bottom left corner of the box. Every box in a tree has the
+ * same width.
+ */
+public class MoveableBoxStateCodec implements StateCodec<MoveableBoxState, MoveableBoxAction> {
+    /**
+     * The width of the box
+     */
+    private double width;
+
+    /**
+     * Construct a codec for boxes of a width
+     *
+     * @param width the width of the box
+     */
+    public MoveableBoxStateCodec(double width) {
+        this.width = width;
+    }
+
+    /**
+     * Get the number of coordinates stored per state
+     *
+     * @return 2: x and y
+     */
+    @Override
+    public int getDimensions() {
+        return 2;
+    }
+
+    /**
+     * Write a state's coordinates into an array
+     *
+     * @param state the state to write
+     * @param coordinates the array to write into
+     * @param offset the index to start writing at
+     */
+    @Override
+    public void encode(MoveableBoxState state, double[] coordinates, int offset) {
+        coordinates[offset] = state.getMainBox().getRect().getX();
+        coordinates[offset + 1] = state.getMainBox().getRect().getY();
+    }
+
+    /**
+     * Read a state back from its coordinates
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     *
+     * @return a new state
+     */
+    @Override
+    public MoveableBoxState decode(double[] coordinates, int offset) {
+        return new MoveableBoxState(new MoveableBox(coordinates[offset], coordinates[offset + 1],
+                width
+        ));
+    }
+
+    /**
+     * Create the action that moves a parent state to a child state
+     *
+     * @param parent the parent state
+     * @param child the child state
+     *
+     * @return the action
+     */
+    @Override
+    public MoveableBoxAction action(MoveableBoxState parent, MoveableBoxState child) {
+        return new MoveableBoxAction(parent.getMainBox(), child.getMainBox());
+    }
+
+    /**
+     * Compute the distance from a state stored as coordinates to another state
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     * @param other the other state to compute the distance to
+     *
+     * @return the distance between the boxes
+     */
+    @Override
+    public double distance(double[] coordinates, int offset, MoveableBoxState other) {
+        return sqrt(pow(other.getMainBox().getRect().getX() - coordinates[offset], 2) +
+                            pow(other.getMainBox().getRect().getY() - coordinates[offset + 1], 2)
+        );
+    }
+
+    /**
+     * Get the x value of the index point, the bottom left corner of the box
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     *
+     * @return the box x position
+     */
+    @Override
+    public double getIndexX(double[] coordinates, int offset) {
+        return coordinates[offset];
+    }
+
+    /**
+     * Get the y value of the index point, the bottom left corner of the box
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     *
+     * @return the box y position
+     */
+    @Override
+    public double getIndexY(double[] coordinates, int offset) {
+        return coordinates[offset + 1];
+    }
+}
@@ -9,6 +9,20 @@ import java.awt.BasicStroke;
  * Visualiser for a movable box path
  */
 public class MoveableBoxVisualiser extends Visualiser<MoveableBoxState, MoveableBoxAction> {
+    /**
+     * The context whose workspace is drawn
+     */
+    private PlanningContext context;
+
+    /**
+     * Construct a visualiser
+     *
+     * @param context the context whose workspace is drawn
+     */
+    public MoveableBoxVisualiser(PlanningContext context) {
+        this.context = context;
+    }
+
     /**
      * Draw a tree node. Helper function to begin recursion
      *
@@ -20,14 +34,14 @@ public class MoveableBoxVisualiser extends Visualiser<MoveableBoxState, Moveable
             Graphics2D g2) {
         // Draw all the static obstacles
         g2.setColor(Color.BLACK);
-        for (Box obstacle : Workspace.getInstance().getStaticObstacles()) {
+        for (Box obstacle : context.getWorkspace().getStaticObstacles()) {
             Shape shape = transform.createTransformedShape(obstacle.getRect());
             g2.fill(shape);
         }
 
         // Draw all the moveable obstacles
         g2.setColor(Color.GREEN);
-        for (Box obstacle : Workspace.getInstance().getMoveableObstacles()) {
+        for (Box obstacle : context.getWorkspace().getMoveableObstacles()) {
             Shape shape = transform.createTransformedShape(obstacle.getRect());
             g2.fill(shape);
         }
@@ -87,14 +101,14 @@ public class MoveableBoxVisualiser extends Visualiser<MoveableBoxState, Moveable
 
         // Draw all the static obstacles
         g2.setColor(Color.BLACK);
-        for (Box obstacle : Workspace.getInstance().getStaticObstacles()) {
+        for (Box obstacle : context.getWorkspace().getStaticObstacles()) {
             Shape shape = transform.createTransformedShape(obstacle.getRect());
             g2.fill(shape);
         }
 
         // Draw all the moveable obstacles
         g2.setColor(Color.GREEN);
-        for (Box obstacle : Workspace.getInstance().getMoveableObstacles()) {
+        for (Box obstacle : context.getWorkspace().getMoveableObstacles()) {
             Shape shape = transform.createTransformedShape(obstacle.getRect());
             g2.fill(shape);
         }
@@ -14,13 +14,15 @@ public class MoveableObstacleRRT extends MoveableBoxRRT {
     /**
      * Construct a MoveableObstacleRRT
      *
+     * @param context the context of the solve this RRT is part of
      * @param initialBox the initial box
      * @param robotStartingPosition the starting position of the robot
      * @param solutionLeaves the solution leaves. These are the paths to avoid.
      */
-    public MoveableObstacleRRT(MoveableBox initialBox, Robot robotStartingPosition,
+    public MoveableObstacleRRT(PlanningContext context, MoveableBox initialBox,
+            Robot robotStartingPosition,
             ArrayList<TreeNode<MoveableBoxState, MoveableBoxAction>> solutionLeaves) {
-        super(initialBox, robotStartingPosition);
+        super(context, initialBox, robotStartingPosition);
 
         this.solutionLeaves = solutionLeaves;
     }
@@ -29,22 +31,23 @@ public class MoveableObstacleRRT extends MoveableBoxRRT {
      * Check if a solution is valid. The box must be out of the way of the path given by
      * solutionLeaves.
      *
-     * @param newestNode the newest node created by exploring
+     * @param newestNode the index of the newest node created by exploring
      *
      * @return whether the solution is valid or not
      */
     @Override
-    protected boolean checkMoveableBoxPath(
-            TreeNode<MoveableBoxState, MoveableBoxAction> newestNode) {
+    protected boolean checkMoveableBoxPath(int newestNode) {
+        MoveableBox newestBox = tree.getState(newestNode).getMainBox();
+
         for (TreeNode<MoveableBoxState, MoveableBoxAction> solutionLeaf : solutionLeaves) {
             for (MoveableBoxAction action : solutionLeaf.actionPathFromRoot()) {
-                if (newestNode.getState().getMainBox().intersects(action.getMovementBox())) {
+                if (newestBox.intersects(action.getMovementBox())) {
                     return false;
                 }
             }
         }
 
-        solutionNode = newestNode;
+        setSolution(newestNode);
 
         // Add the solution to the solution leaves list
         solutionLeaves.add(solutionNode);
@@ -71,7 +74,7 @@ public class MoveableObstacleRRT extends MoveableBoxRRT {
      */
     @Override
     protected void pushBoxInWorkspace(MoveableBox boxToPush) {
-        Workspace.getInstance().pushBox(boxToPush);
+        context.getWorkspace().pushBox(boxToPush);
     }
 
     /**
@@ -81,7 +84,7 @@ public class MoveableObstacleRRT extends MoveableBoxRRT {
      */
     @Override
     protected void finishPushBoxInWorkspace(MoveableBox newPosition) {
-        Workspace.getInstance().finishPush(newPosition);
+        context.getWorkspace().finishPush(newPosition);
     }
 
     /**
@@ -93,10 +96,10 @@ public class MoveableObstacleRRT extends MoveableBoxRRT {
     public boolean finishSolution() {
         try {
             // Save the workspace
-            Workspace.save();
+            context.save();
 
             // Mark the obstacle as being moved
-            Workspace.getInstance().markBoxNeedsMoving(getInitialBox());
+            context.getWorkspace().markBoxNeedsMoving(getInitialBox());
 
             // Add in all the paths required to move moveable obstacles at the beginning
             ArrayList<RobotAction> robotPaths = moveMoveableObstacles(robotStartingPosition);
@@ -111,12 +114,12 @@ public class MoveableObstacleRRT extends MoveableBoxRRT {
             robotPath = robotPaths;
 
             // This solution was valid. Update the workspace
-            Workspace.overwriteLastAndRemove();
+            context.overwriteLastAndRemove();
 
             return true;
         } catch (NoPathException e) {
             // Robot can't do it, no solution
-            Workspace.undo();
+            context.undo();
             return false;
         }
     }
@@ -127,7 +130,7 @@ public class MoveableObstacleRRT extends MoveableBoxRRT {
      * @return the obstacles to avoid
      */
     @Override
-    public ArrayList<Box> getObstacles() {
-        return Workspace.getInstance().getCurrentStillObstacles();
+    public ObstacleGrid getObstacles() {
+        return context.getWorkspace().getCurrentStillObstacleGrid();
     }
 }
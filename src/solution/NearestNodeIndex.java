@@ -0,0 +1,34 @@
+package solution;
+
+/**
+ * An index over the nodes of an RRT's tree, used to find the node nearest to a new state.
+ *
+ * @param <T> the state class
+ * @param <U> the action class
+ */
+public interface NearestNodeIndex<T extends State<T>, U> {
+    /**
+     * Add a node of the tree to the index. Nodes must be added in the same order they are added
+     * to the tree.
+     *
+     * @param node the index of the node in the tree
+     */
+    void add(int node);
+
+    /**
+     * Find the nearest node in the index to a given state. Must return the same node as a linear
+     * scan over the nodes in the order they were added.
+     *
+     * @param state the state to find the node nearest to
+     *
+     * @return the index of the nearest node in the tree
+     */
+    int nearest(T state);
+
+    /**
+     * Get the number of nodes in the index
+     *
+     * @return the number of nodes
+     */
+    int size();
+}
@@ -1,6 +1,60 @@
 package solution;
 
+import java.util.ArrayList;
+
 /**
  * If there is no order for GoalBoxRRTs such that they are all doable
  */
-public class NoRRTOrderException extends Exception {}
+public class NoRRTOrderException extends Exception {
+    /**
+     * The indices of the goal boxes in the smallest cycle of conflicts, or empty if unknown
+     */
+    private ArrayList<Integer> cycle;
+
+    /**
+     * The indices of the goal boxes whose paths cause the conflicts in the cycle
+     */
+    private ArrayList<Integer> crossingPaths;
+
+    /**
+     * Construct the exception without any detail
+     */
+    public NoRRTOrderException() {
+        cycle = new ArrayList<>();
+        crossingPaths = new ArrayList<>();
+    }
+
+    /**
+     * Construct the exception with the conflicts that prevent an order
+     *
+     * @param message a description of the conflicts
+     * @param cycle the indices of the goal boxes in the smallest cycle of conflicts. Each box must
+     * be moved before the next, and the last before the first.
+     * @param crossingPaths the indices of the goal boxes whose paths cause the conflicts
+     */
+    public NoRRTOrderException(String message, ArrayList<Integer> cycle,
+            ArrayList<Integer> crossingPaths) {
+        super(message);
+        this.cycle = cycle;
+        this.crossingPaths = crossingPaths;
+    }
+
+    /**
+     * Get the smallest cycle of conflicts
+     *
+     * @return the indices of the goal boxes in the cycle, or an empty list if unknown
+     */
+    public ArrayList<Integer> getCycle() {
+        return new ArrayList<>(cycle);
+    }
+
+    /**
+     * Get the goal boxes whose paths cause the smallest cycle of conflicts. A different path for
+     * any of them could break the cycle.
+     *
+     * @return the indices of the goal boxes, or an empty list if unknown
+     */
+    public ArrayList<Integer> getCrossingPaths() {
+        return new ArrayList<>(crossingPaths);
+    }
+}
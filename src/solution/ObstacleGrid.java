@@ -0,0 +1,297 @@
+package solution;
+
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.Predicate;
+
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A set of obstacles bucketed into a uniform grid over the workspace, so collision checks only
+ * look at obstacles near the thing being checked. Obstacles are stored in every cell their bounds
+ * touch. Anything outside the workspace is stored in the nearest edge cells.
+ *
+ * Copies share their cells until one of them is changed, and then only the changed cells are
+ * copied. A grid that isn't being changed can be copied from several threads at once.
+ */
+public class ObstacleGrid {
+    /**
+     * Number of cells along each side of the workspace
+     */
+    private static final int CELLS = 16;
+
+    /**
+     * Every obstacle in the grid
+     */
+    private PersistentList<Box> boxes;
+
+    /**
+     * The obstacles touching each cell, indexed by row * CELLS + column
+     */
+    private ArrayList<ArrayList<Box>> cells;
+
+    /**
+     * Whether cells is only used by this grid. Never false while some of the cells are owned, so
+     * a grid that doesn't own cells shares all of them.
+     */
+    private boolean ownsCells;
+
+    /**
+     * Whether each cell's list is only used by this grid
+     */
+    private boolean[] ownsCell;
+
+    /**
+     * Construct an empty grid
+     */
+    public ObstacleGrid() {
+        boxes = new PersistentList<>();
+        cells = new ArrayList<>(CELLS * CELLS);
+
+        for (int i = 0; i < CELLS * CELLS; i++) {
+            cells.add(new ArrayList<>());
+        }
+
+        ownsCells = true;
+        ownsCell = new boolean[CELLS * CELLS];
+        Arrays.fill(ownsCell, true);
+    }
+
+    /**
+     * Construct a grid containing some obstacles
+     *
+     * @param obstacles the obstacles
+     */
+    public ObstacleGrid(Collection<? extends Box> obstacles) {
+        this();
+
+        for (Box obstacle : obstacles) {
+            add(obstacle);
+        }
+    }
+
+    /**
+     * Add an obstacle
+     *
+     * @param box the obstacle to add
+     */
+    public void add(Box box) {
+        boxes = boxes.add(box);
+
+        int minColumn = cell(box.getRect().getMinX());
+        int maxColumn = cell(box.getRect().getMaxX());
+        int minRow = cell(box.getRect().getMinY());
+        int maxRow = cell(box.getRect().getMaxY());
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                getWritableCell(row * CELLS + column).add(box);
+            }
+        }
+    }
+
+    /**
+     * Remove an obstacle. The same as removing it from a list, the first equal obstacle is removed.
+     *
+     * @param box the obstacle to remove
+     *
+     * @return whether an obstacle was removed
+     */
+    public boolean remove(Box box) {
+        Box stored = boxes.find(box);
+
+        if (stored == null) {
+            return false;
+        }
+
+        boxes = boxes.remove(stored);
+
+        int minColumn = cell(stored.getRect().getMinX());
+        int maxColumn = cell(stored.getRect().getMaxX());
+        int minRow = cell(stored.getRect().getMinY());
+        int maxRow = cell(stored.getRect().getMaxY());
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                ArrayList<Box> cell = getWritableCell(row * CELLS + column);
+
+                // Remove the stored instance, not just an equal one
+                for (int i = 0; i < cell.size(); i++) {
+                    if (cell.get(i) == stored) {
+                        cell.remove(i);
+                        break;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Check if any obstacle intersects a line
+     *
+     * @param line the line
+     *
+     * @return whether an obstacle intersects the line
+     */
+    public boolean intersectsLine(Line2D line) {
+        return intersectsLine(line.getX1(), line.getY1(), line.getX2(), line.getY2());
+    }
+
+    /**
+     * Check if any obstacle intersects a line segment
+     *
+     * @param x1 the x value of the start of the segment
+     * @param y1 the y value of the start of the segment
+     * @param x2 the x value of the end of the segment
+     * @param y2 the y value of the end of the segment
+     *
+     * @return whether an obstacle intersects the segment
+     */
+    public boolean intersectsLine(double x1, double y1, double x2, double y2) {
+        int minColumn = cell(min(x1, x2));
+        int maxColumn = cell(max(x1, x2));
+        int minRow = cell(min(y1, y2));
+        int maxRow = cell(max(y1, y2));
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (Box box : cells.get(row * CELLS + column)) {
+                    if (box.intersectsLine(x1, y1, x2, y2)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if any obstacle intersects a box
+     *
+     * @param other the box
+     *
+     * @return whether an obstacle intersects the box
+     */
+    public boolean intersects(Box other) {
+        int minColumn = cell(other.getRect().getMinX());
+        int maxColumn = cell(other.getRect().getMaxX());
+        int minRow = cell(other.getRect().getMinY());
+        int maxRow = cell(other.getRect().getMaxY());
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int column = minColumn; column <= maxColumn; column++) {
+                for (Box box : cells.get(row * CELLS + column)) {
+                    if (other.intersects(box)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check if any obstacle near an area matches a condition. Obstacles touching several cells
+     * may be tested more than once.
+     *
+     * @param minX the minimum x of the area
+     * @param minY the minimum y of the area
+     * @param maxX the maximum x of the area
+     * @param maxY the maximum y of the area
+     * @param condition the condition
+     *
+     * @return whether an obstacle matches the condition
+     */
+    public boolean anyNear(double minX, double minY, double maxX, double maxY,
+            Predicate<Box> condition) {
+        for (int row = cell(minY); row <= cell(maxY); row++) {
+            for (int column = cell(minX); column <= cell(maxX); column++) {
+                for (Box box : cells.get(row * CELLS + column)) {
+                    if (condition.test(box)) {
+                        return true;
+                    }
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get every obstacle in the grid
+     *
+     * @return the obstacles
+     */
+    public ArrayList<Box> getBoxes() {
+        return boxes.toArrayList();
+    }
+
+    /**
+     * Copy the grid. The obstacles themselves are shared. Takes constant time, since the cells
+     * are only copied when one of the grids changes them.
+     *
+     * @return the copy
+     */
+    public synchronized ObstacleGrid copy() {
+        // Both grids now share the cells. A grid that is already shared is left unchanged, so
+        // copying a grid that isn't being changed only reads it.
+        if (ownsCells) {
+            ownsCells = false;
+            Arrays.fill(ownsCell, false);
+        }
+
+        return new ObstacleGrid(boxes, cells);
+    }
+
+    /**
+     * Construct a grid sharing another grid's cells
+     *
+     * @param boxes every obstacle in the grid
+     * @param cells the obstacles touching each cell
+     */
+    private ObstacleGrid(PersistentList<Box> boxes, ArrayList<ArrayList<Box>> cells) {
+        this.boxes = boxes;
+        this.cells = cells;
+        ownsCells = false;
+        ownsCell = new boolean[CELLS * CELLS];
+    }
+
+    /**
+     * Get a cell's list of obstacles so it can be changed, copying it first if it's shared
+     *
+     * @param index the index of the cell
+     *
+     * @return the list of obstacles
+     */
+    private synchronized ArrayList<Box> getWritableCell(int index) {
+        if (!ownsCells) {
+            cells = new ArrayList<>(cells);
+            ownsCells = true;
+        }
+
+        if (!ownsCell[index]) {
+            cells.set(index, new ArrayList<>(cells.get(index)));
+            ownsCell[index] = true;
+        }
+
+        return cells.get(index);
+    }
+
+    /**
+     * Get the cell a coordinate falls in, clamped to the workspace
+     *
+     * @param coordinate the x or y coordinate
+     *
+     * @return the column or row of the cell
+     */
+    private static int cell(double coordinate) {
+        return max(0, min(CELLS - 1, (int) Math.floor(coordinate * CELLS)));
+    }
+}
@@ -1,13 +1,13 @@
 package solution;
 
+import java.awt.geom.Rectangle2D;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 
-import static java.lang.Math.ceil;
-
 /**
  * Saves a problem solution to an output file
  */
@@ -27,19 +27,32 @@ public class Outputter {
      */
     private ArrayList<MoveableBox> initialGoalBoxes;
 
+    /**
+     * How finely to cut actions into primitive steps. Must be the same as when planning.
+     */
+    private StepSize stepSize;
+
+    /**
+     * Number of decimal places to write numbers with
+     */
+    private int decimals;
+
     /**
      * Construct an outputter with a robot path
      *
      * @param robotPath the robot path
      * @param initialMoveableObstacles the initial movable obstacles
      * @param initialGoalBoxes the initial goal boxes
+     * @param context the context the path was planned in, for its step size and decimal places
      */
     public Outputter(ArrayList<RobotAction> robotPath,
             ArrayList<MoveableBox> initialMoveableObstacles,
-            ArrayList<MoveableBox> initialGoalBoxes) {
+            ArrayList<MoveableBox> initialGoalBoxes, PlanningContext context) {
         this.robotPath = robotPath;
         this.initialMoveableObstacles = initialMoveableObstacles;
         this.initialGoalBoxes = initialGoalBoxes;
+        stepSize = context.getStepSize();
+        decimals = context.getDecimals();
     }
 
     /**
@@ -48,150 +61,204 @@ public class Outputter {
      * @param filename the file to write to
      *
      * @throws IOException if there was an IO exception when writing
-     * @throws BoxLostException if a box was lost while pushing
+     * @throws BoxLostException if a box was lost while pushing. Nothing is written.
      */
     public void writeSolution(String filename) throws IOException, BoxLostException {
+        // Find any lost box before touching the file
+        int[] pushedBoxIndices = findPushedBoxes();
+
         // Ensure the file exists
         File file = new File(filename);
         if (!file.exists()) {
             file.createNewFile();
         }
 
-        // Instantiate the writers
-        FileWriter fw = new FileWriter(file);
-        BufferedWriter bw = new BufferedWriter(fw);
-
-        // Output the solution
-
-        // Break the solution up into primitive steps
-        ArrayList<RobotAction> robotPathPrimitive = new ArrayList<>();
-
-        ArrayList<MoveableBox> allBoxes = new ArrayList<>(initialGoalBoxes);
-        allBoxes.addAll(initialMoveableObstacles);
-
-        ArrayList<MoveableBox> allBoxesInitialDeepClone = new ArrayList<>();
-        ArrayList<MoveableBox> allBoxesDeepCloneForWholeActions = new ArrayList<>();
-        for (MoveableBox box : allBoxes) {
-            allBoxesInitialDeepClone.add(box.clone());
-            allBoxesDeepCloneForWholeActions.add(box.clone());
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            writeSteps(bw, pushedBoxIndices);
         }
 
-        ArrayList<ArrayList<MoveableBox>> allBoxesList = new ArrayList<>();
-
-        for (RobotAction action : robotPath) {
-            double actionSize = action.getInitialRobot().distanceToOtherRobot(
-                    action.getFinalRobot()
-            );
+        System.out.println("Output written! Success");
+    }
 
-            double numSteps = ceil(actionSize / 0.0005);
+    /**
+     * Write the solution to a writer. Each primitive step is written as soon as it's generated, so
+     * only the current box positions are held in memory however long the solution is.
+     *
+     * @param writer the writer to write to. It's flushed but not closed.
+     *
+     * @throws IOException if there was an IO exception when writing
+     * @throws BoxLostException if a box was lost while pushing. Nothing is written.
+     */
+    public void writeSolution(Writer writer) throws IOException, BoxLostException {
+        int[] pushedBoxIndices = findPushedBoxes();
 
-            // Step along the line, adding a robot action to robotPathPrimitive each time
-            for (int i = 0; i < numSteps; i++) {
-                // Calculate the new initial and final robot positions
-                Robot newInitialRobot = action.getInitialRobot().clone();
-                Robot newFinalRobot = action.getInitialRobot().clone();
+        BufferedWriter bw = writer instanceof BufferedWriter ? (BufferedWriter) writer :
+                new BufferedWriter(writer);
 
-                newInitialRobot.move(i / numSteps * action.getDx(), i / numSteps * action.getDy(),
-                        i / numSteps * action.getDtheta()
-                );
+        writeSteps(bw, pushedBoxIndices);
+        bw.flush();
+    }
 
-                newFinalRobot.move((i + 1) / numSteps * action.getDx(),
-                        (i + 1) / numSteps * action.getDy(), (i + 1) / numSteps * action.getDtheta()
-                );
+    /**
+     * Find which box each action pushes, by following the boxes through the whole actions
+     *
+     * @return the index in the list of all boxes of the box each action pushes, or -1 if it
+     * doesn't push one
+     *
+     * @throws BoxLostException if an action pushes a box that isn't where it should be
+     */
+    private int[] findPushedBoxes() throws BoxLostException {
+        ArrayList<MoveableBox> allBoxes = cloneAllBoxes();
+        int[] pushedBoxIndices = new int[robotPath.size()];
 
-                // Create the new action object
-                RobotAction newAction = new RobotAction(newInitialRobot, newFinalRobot);
+        for (int actionIndex = 0; actionIndex < robotPath.size(); actionIndex++) {
+            RobotAction action = robotPath.get(actionIndex);
+            pushedBoxIndices[actionIndex] = -1;
 
-                // Append it to the ArrayList
-                robotPathPrimitive.add(newAction);
+            if (action.getBoxPushing() != null) {
+                int boxPushedIndex = allBoxes.indexOf(action.getBoxPushing());
 
-                // Clone allBoxes
-                ArrayList<MoveableBox> allBoxesDeepClone = new ArrayList<>();
-                for (MoveableBox box : allBoxesDeepCloneForWholeActions) {
-                    allBoxesDeepClone.add(box.clone());
-                }
+                if (boxPushedIndex == -1) {
+                    System.out.println(allBoxes);
+                    System.out.println(action.getBoxPushing());
 
-                // Modify allBoxesDeepCopy to correctly move a box if necessary then add to
-                // AllBoxesList
-                if (action.getBoxPushing() != null) {
-                    int boxPushedIndex = allBoxesDeepCloneForWholeActions.indexOf(
-                            action.getBoxPushing());
-                    try {
-                        MoveableBox boxPushed = allBoxesDeepClone.get(boxPushedIndex);
-                        boxPushed.move((i + 1) / numSteps * action.getDx(),
-                                (i + 1) / numSteps * action.getDy()
-                        );
-                    } catch (IndexOutOfBoundsException e) {
-                        System.out.println(allBoxesDeepCloneForWholeActions);
-                        System.out.println(action.getBoxPushing());
-
-                        // This is pretty ridiculous but whatever
-                        throw new BoxLostException();
-                    }
+                    // This is pretty ridiculous but whatever
+                    throw new BoxLostException(actionIndex);
                 }
 
-                allBoxesList.add(allBoxesDeepClone);
+                allBoxes.get(boxPushedIndex).move(action.getDx(), action.getDy());
+                pushedBoxIndices[actionIndex] = boxPushedIndex;
             }
+        }
 
-            if (action.getBoxPushing() != null) {
-                int boxPushedIndex = allBoxesDeepCloneForWholeActions.indexOf(action.getBoxPushing());
+        return pushedBoxIndices;
+    }
 
-                try {
-                    MoveableBox boxPushed = allBoxesDeepCloneForWholeActions.get(boxPushedIndex);
-                    boxPushed.move(action.getDx(), action.getDy());
-                } catch (IndexOutOfBoundsException e) {
-                    System.out.println(allBoxesDeepCloneForWholeActions);
-                    System.out.println(action.getBoxPushing());
+    /**
+     * Break the solution up into primitive steps and write each one
+     *
+     * @param bw the writer to write to
+     * @param pushedBoxIndices the box each action pushes, or -1
+     *
+     * @throws IOException if there was an IO exception when writing
+     */
+    private void writeSteps(BufferedWriter bw, int[] pushedBoxIndices) throws IOException {
+        // The boxes as they are at the start of the current action
+        ArrayList<MoveableBox> allBoxes = cloneAllBoxes();
 
-                    // This is pretty ridiculous but whatever
-                    throw new BoxLostException();
-                }
-            }
+        // Each line is built up here, then written in one go
+        FixedPrecisionFormatter line = new FixedPrecisionFormatter(decimals);
 
+        // First line: number of steps (+ 1)
+        int stepCount = 0;
+
+        for (RobotAction action : robotPath) {
+            stepCount += numSteps(action);
         }
 
-        // First line: number of steps (+ 1)
-        bw.write(Integer.toString(robotPathPrimitive.size() + 1));
+        bw.write(Integer.toString(stepCount + 1));
         bw.newLine();
 
-        // Second line: initial configuration
-        RobotAction initialAction = robotPathPrimitive.get(0);
-        bw.write(initialAction.getInitialRobot().getX() + " " +
-                         initialAction.getInitialRobot().getY() + " " +
-                         initialAction.getInitialRobot().getTheta()
-        );
+        // Second line: initial configuration. The tester compares this exactly with the problem.
+        Robot initialRobot = robotPath.get(0).getInitialRobot();
+        line.appendExact(initialRobot.getX()).append(' ').appendExact(initialRobot.getY())
+                .append(' ').appendExact(initialRobot.getTheta());
+
+        // The tester spots moved boxes by exact comparison, so boxes keep this exact text until
+        // they're first pushed
+        String[] initialCenters = new String[allBoxes.size()];
+        boolean[] pushed = new boolean[allBoxes.size()];
 
-        for (MoveableBox box : allBoxesInitialDeepClone) {
-            bw.write(" " + box.getRect().getCenterX() + " " + box.getRect().getCenterY());
+        for (int b = 0; b < allBoxes.size(); b++) {
+            Rectangle2D rect = allBoxes.get(b).getRect();
+            initialCenters[b] = rect.getCenterX() + " " + rect.getCenterY();
+
+            line.append(' ').append(initialCenters[b]);
         }
 
+        line.writeTo(bw);
         bw.newLine();
 
         // Remaining lines: configurations of robot and boxes
-        for (int i = 0; i < robotPathPrimitive.size(); i++) {
+        for (int actionIndex = 0; actionIndex < robotPath.size(); actionIndex++) {
+            RobotAction action = robotPath.get(actionIndex);
+            int boxPushedIndex = pushedBoxIndices[actionIndex];
+            double numSteps = numSteps(action);
 
-            RobotAction primitiveAction = robotPathPrimitive.get(i);
+            // Step along the line, writing the configuration at the end of each step
+            for (int i = 0; i < numSteps; i++) {
+                double fraction = (i + 1) / numSteps;
 
-            ArrayList<MoveableBox> allBoxesSingle = allBoxesList.get(i);
+                // Robot configuration
+                Robot robot = action.getInitialRobot().clone();
+                robot.move(fraction * action.getDx(), fraction * action.getDy(),
+                        fraction * action.getDtheta()
+                );
 
-            // Robot configuration
-            bw.write(primitiveAction.getFinalRobot().getX() + " " +
-                             primitiveAction.getFinalRobot().getY() + " " +
-                             primitiveAction.getFinalRobot().getTheta() + " "
-            );
+                line.append(robot.getX()).append(' ').append(robot.getY()).append(' ')
+                        .append(robot.getTheta()).append(' ');
+
+                // Box configuration. The pushed box is part of the way along the action.
+                for (int b = 0; b < allBoxes.size(); b++) {
+                    Rectangle2D rect = allBoxes.get(b).getRect();
+
+                    if (b == boxPushedIndex) {
+                        pushed[b] = true;
+
+                        // Same rounding as moving the box, then taking its center
+                        line.append(' ')
+                                .append(rect.getX() + fraction * action.getDx() +
+                                                rect.getWidth() / 2.0)
+                                .append(' ')
+                                .append(rect.getY() + fraction * action.getDy() +
+                                                rect.getHeight() / 2.0);
+                    } else if (pushed[b]) {
+                        line.append(' ').append(rect.getCenterX()).append(' ')
+                                .append(rect.getCenterY());
+                    } else {
+                        line.append(' ').append(initialCenters[b]);
+                    }
+                }
+
+                line.writeTo(bw);
+                bw.newLine();
+            }
 
-            // Box configuration
-            for (MoveableBox box : allBoxesSingle) {
-                bw.write(" " + box.getRect().getCenterX() + " " + box.getRect().getCenterY());
+            if (boxPushedIndex != -1) {
+                allBoxes.get(boxPushedIndex).move(action.getDx(), action.getDy());
             }
+        }
+    }
+
+    /**
+     * Get the number of primitive steps to break an action into
+     *
+     * @param action the action
+     *
+     * @return the number of steps
+     */
+    private int numSteps(RobotAction action) {
+        return stepSize.count(action.getInitialRobot().getWidth(), action.getDx(), action.getDy(),
+                action.getDtheta()
+        );
+    }
 
-            bw.newLine();
+    /**
+     * Clone the initial goal boxes followed by the initial moveable obstacles
+     *
+     * @return the clones
+     */
+    private ArrayList<MoveableBox> cloneAllBoxes() {
+        ArrayList<MoveableBox> allBoxes = new ArrayList<>();
+
+        for (MoveableBox box : initialGoalBoxes) {
+            allBoxes.add(box.clone());
         }
 
-        // Complete the write
-        bw.close();
-        fw.close();
+        for (MoveableBox box : initialMoveableObstacles) {
+            allBoxes.add(box.clone());
+        }
 
-        System.out.println("Output written! Success");
+        return allBoxes;
     }
 }
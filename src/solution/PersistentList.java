@@ -0,0 +1,201 @@
+package solution;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * An immutable list that shares structure between versions. Adding returns a new list in constant
+ * time, and removing only copies the elements added after the one removed, so keeping many
+ * versions of a list costs memory proportional to the changes between them.
+ *
+ * @param <E> the element type
+ */
+public class PersistentList<E> {
+    /**
+     * A link in the list. The newest element is at the head.
+     *
+     * @param <E> the element type
+     */
+    private static class Node<E> {
+        /**
+         * The element
+         */
+        private final E value;
+
+        /**
+         * The link holding the element added before this one
+         */
+        private final Node<E> next;
+
+        /**
+         * Construct a link
+         *
+         * @param value the element
+         * @param next the link holding the element added before this one
+         */
+        private Node(E value, Node<E> next) {
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * The most recently added element, or null if the list is empty
+     */
+    private final Node<E> head;
+
+    /**
+     * Number of elements in the list
+     */
+    private final int size;
+
+    /**
+     * Construct an empty list
+     */
+    public PersistentList() {
+        this(null, 0);
+    }
+
+    /**
+     * Construct a list containing some elements, in order
+     *
+     * @param elements the elements
+     */
+    public PersistentList(Collection<? extends E> elements) {
+        Node<E> newHead = null;
+
+        for (E element : elements) {
+            newHead = new Node<>(element, newHead);
+        }
+
+        head = newHead;
+        size = elements.size();
+    }
+
+    /**
+     * Construct a list from a chain of links
+     *
+     * @param head the most recently added element
+     * @param size the number of elements
+     */
+    private PersistentList(Node<E> head, int size) {
+        this.head = head;
+        this.size = size;
+    }
+
+    /**
+     * Add an element to the end of the list
+     *
+     * @param element the element to add
+     *
+     * @return the new list
+     */
+    public PersistentList<E> add(E element) {
+        return new PersistentList<>(new Node<>(element, head), size + 1);
+    }
+
+    /**
+     * Remove the first element equal to an object, the same as ArrayList.remove
+     *
+     * @param o the object to remove
+     *
+     * @return the new list, or this list if nothing was equal
+     */
+    public PersistentList<E> remove(Object o) {
+        // The first element in list order is the last one found from the head
+        Node<E> match = null;
+        int newerCount = 0;
+        int count = 0;
+
+        for (Node<E> node = head; node != null; node = node.next) {
+            if (o == null ? node.value == null : o.equals(node.value)) {
+                match = node;
+                newerCount = count;
+            }
+
+            count++;
+        }
+
+        if (match == null) {
+            return this;
+        }
+
+        // Copy the elements added after the match onto the elements added before it
+        ArrayList<E> newer = new ArrayList<>(newerCount);
+
+        for (Node<E> node = head; node != match; node = node.next) {
+            newer.add(node.value);
+        }
+
+        Node<E> newHead = match.next;
+
+        for (int i = newer.size() - 1; i >= 0; i--) {
+            newHead = new Node<>(newer.get(i), newHead);
+        }
+
+        return new PersistentList<>(newHead, size - 1);
+    }
+
+    /**
+     * Find the first element equal to an object
+     *
+     * @param o the object to find
+     *
+     * @return the element stored in the list, or null if nothing was equal
+     */
+    public E find(Object o) {
+        E found = null;
+
+        for (Node<E> node = head; node != null; node = node.next) {
+            if (o == null ? node.value == null : o.equals(node.value)) {
+                found = node.value;
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Check if the list contains an element equal to an object
+     *
+     * @param o the object to find
+     *
+     * @return whether the list contains the object
+     */
+    public boolean contains(Object o) {
+        for (Node<E> node = head; node != null; node = node.next) {
+            if (o == null ? node.value == null : o.equals(node.value)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Get the number of elements
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Copy the list into an ArrayList, in order
+     *
+     * @return the elements
+     */
+    public ArrayList<E> toArrayList() {
+        ArrayList<E> elements = new ArrayList<>(size);
+
+        for (Node<E> node = head; node != null; node = node.next) {
+            elements.add(node.value);
+        }
+
+        Collections.reverse(elements);
+
+        return elements;
+    }
+}
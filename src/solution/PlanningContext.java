@@ -0,0 +1,200 @@
+package solution;
+
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+
+/**
+ * Everything a single solve works on: the versions of the workspace, the robot roadmap, the
+ * source of randomness and the solver settings. Each problem gets its own context, so several
+ * problems can be solved at once in the same JVM with different settings. The settings should be
+ * changed before solving starts.
+ */
+public class PlanningContext {
+    /**
+     * Versions of the workspace. The last one is the current version.
+     */
+    private ArrayList<Workspace> storedVersions;
+
+    /**
+     * The robot roadmap, built the first time it's needed
+     */
+    private RobotRoadmap roadmap;
+
+    /**
+     * The generator every planner in this context splits its generator from
+     */
+    private SplittableRandom random;
+
+    /**
+     * The seed of random
+     */
+    private long seed;
+
+    /**
+     * Number of copies to run for each RRT query (see RRTPortfolio)
+     */
+    private int portfolioCopies = 1;
+
+    /**
+     * How finely robot motions are cut into primitive steps, when planning and when writing
+     */
+    private StepSize stepSize = new StepSize(StepSize.DEFAULT_MARGIN);
+
+    /**
+     * Number of decimal places to write the solution with
+     */
+    private int decimals = FixedPrecisionFormatter.DEFAULT_DECIMALS;
+
+    /**
+     * Construct a context with an empty workspace and a random seed
+     */
+    public PlanningContext() {
+        this(new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Construct a context with an empty workspace and a fixed seed. With a single RRT copy per
+     * query, a solve with the same seed makes exactly the same choices.
+     *
+     * @param seed the seed
+     */
+    public PlanningContext(long seed) {
+        this.seed = seed;
+        random = new SplittableRandom(seed);
+
+        storedVersions = new ArrayList<>();
+        storedVersions.add(new Workspace());
+    }
+
+    /**
+     * Get the current version of the workspace
+     *
+     * @return the workspace
+     */
+    public synchronized Workspace getWorkspace() {
+        return storedVersions.get(storedVersions.size() - 1);
+    }
+
+    /**
+     * Create a new version that's a copy of the current one
+     */
+    public synchronized void save() {
+        storedVersions.add(getWorkspace().clone());
+    }
+
+    /**
+     * Revert to the last version
+     */
+    public synchronized void undo() {
+        // Remove the top version from the list, ensure there's always at least one version
+        // (the original)
+        if (storedVersions.size() > 1) {
+            storedVersions.remove(storedVersions.size() - 1);
+        }
+    }
+
+    /**
+     * Set the last version to the current one, and remove the current one
+     */
+    public synchronized void overwriteLastAndRemove() {
+        if (storedVersions.size() > 1) {
+            Workspace version = getWorkspace();
+            undo();
+            undo();
+            storedVersions.add(version);
+        }
+    }
+
+    /**
+     * Get the robot roadmap, building it the first time
+     *
+     * @return the roadmap
+     */
+    public synchronized RobotRoadmap getRoadmap() {
+        if (roadmap == null) {
+            roadmap = new RobotRoadmap(getWorkspace().getRobotWidth(),
+                    getWorkspace().getStaticObstacleGrid(), stepSize, splitRandom()
+            );
+        }
+
+        return roadmap;
+    }
+
+    /**
+     * Split a new generator off this context's generator
+     *
+     * @return the new generator
+     */
+    public synchronized SplittableRandom splitRandom() {
+        return random.split();
+    }
+
+    /**
+     * Get the seed this context's generator was created with. Passing it to the constructor
+     * replays a solve.
+     *
+     * @return the seed
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Set the number of copies to run for each RRT query
+     *
+     * @param portfolioCopies the number of copies. Anything less than 1 counts as 1.
+     */
+    public void setPortfolioCopies(int portfolioCopies) {
+        this.portfolioCopies = Math.max(1, portfolioCopies);
+    }
+
+    /**
+     * Get the number of copies to run for each RRT query
+     *
+     * @return the number of copies
+     */
+    public int getPortfolioCopies() {
+        return portfolioCopies;
+    }
+
+    /**
+     * Set the fraction of the tester's largest step that is kept back
+     *
+     * @param margin the fraction, at least 0 and less than 1
+     */
+    public void setStepMargin(double margin) {
+        stepSize = new StepSize(margin);
+    }
+
+    /**
+     * Get how finely robot motions are cut into primitive steps
+     *
+     * @return the step size
+     */
+    public StepSize getStepSize() {
+        return stepSize;
+    }
+
+    /**
+     * Set the number of decimal places to write the solution with. The tester allows an error of
+     * 0.0001, so anything from 6 up loses nothing it checks.
+     *
+     * @param decimals the number of decimal places, from 0 to FixedPrecisionFormatter.MAX_DECIMALS
+     */
+    public void setDecimals(int decimals) {
+        if (decimals < 0 || decimals > FixedPrecisionFormatter.MAX_DECIMALS) {
+            throw new IllegalArgumentException("Invalid number of decimal places: " + decimals);
+        }
+
+        this.decimals = decimals;
+    }
+
+    /**
+     * Get the number of decimal places to write the solution with
+     *
+     * @return the number of decimal places
+     */
+    public int getDecimals() {
+        return decimals;
+    }
+}
@@ -12,9 +12,9 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 
 import static java.lang.Math.PI;
-import static java.lang.Math.random;
 
 public class ProblemTester {
     /**
@@ -42,6 +42,47 @@ public class ProblemTester {
      */
     private Robot robotStartingPosition;
 
+    /**
+     * The generator used to place the robot and boxes
+     */
+    private SplittableRandom random;
+
+    /**
+     * The number of each type of box to generate
+     */
+    private int goalBoxCount = 10;
+    private int moveableObstacleCount = 8;
+    private int staticObstacleCount = 12;
+
+    /**
+     * Construct a problem tester with a randomly seeded generator
+     */
+    public ProblemTester() {
+        random = new SplittableRandom();
+    }
+
+    /**
+     * Construct a problem tester that generates the same problems for the same seed
+     *
+     * @param seed the seed
+     */
+    public ProblemTester(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Set the number of each type of box in the problems generated
+     *
+     * @param goalBoxCount the number of goal boxes
+     * @param moveableObstacleCount the number of moveable obstacles
+     * @param staticObstacleCount the number of static obstacles
+     */
+    public void setBoxCounts(int goalBoxCount, int moveableObstacleCount,
+            int staticObstacleCount) {
+        this.goalBoxCount = goalBoxCount;
+        this.moveableObstacleCount = moveableObstacleCount;
+        this.staticObstacleCount = staticObstacleCount;
+    }
 
     public static void main(String[] args) {
         int count = 0;
@@ -103,29 +144,38 @@ public class ProblemTester {
 
             generateProblem();
 
+            // Each line is built up here, then written in one go. Numbers are written exactly, so
+            // the file holds the same problem that was generated and checked.
+            FixedPrecisionFormatter line = new FixedPrecisionFormatter();
+
             // First line: robot configuration
-            bw.write(robotStartingPosition.getWidth() + " " + robotStartingPosition.getX() + " " + robotStartingPosition.getY() + " " + robotStartingPosition.getTheta());
+            line.appendExact(robotStartingPosition.getWidth()).append(' ').appendExact(robotStartingPosition.getX()).append(' ').appendExact(robotStartingPosition.getY()).append(' ').appendExact(robotStartingPosition.getTheta());
+            line.writeTo(bw);
             bw.newLine();
 
             // Second line: number of boxes
-            bw.write(goalBoxes.size() + " " + moveableObstacles.size() + " " + staticObstacles.size());
+            line.append(goalBoxes.size()).append(' ').append(moveableObstacles.size()).append(' ').append(staticObstacles.size());
+            line.writeTo(bw);
             bw.newLine();
 
             // Initial and goal positions for the robot
             for (int i = 0; i < goalBoxes.size(); i++) {
-                bw.write(goalBoxes.get(i).getRect().getCenterX() + " " + goalBoxes.get(i).getRect().getCenterY() + " " + goalBoxGoalPositions.get(i).getRect().getCenterX() + " " + goalBoxGoalPositions.get(i).getRect().getCenterY());
+                line.appendExact(goalBoxes.get(i).getRect().getCenterX()).append(' ').appendExact(goalBoxes.get(i).getRect().getCenterY()).append(' ').appendExact(goalBoxGoalPositions.get(i).getRect().getCenterX()).append(' ').appendExact(goalBoxGoalPositions.get(i).getRect().getCenterY());
+                line.writeTo(bw);
                 bw.newLine();
             }
 
             // Initial positions for moveable obstacles
             for (MoveableBox box : moveableObstacles) {
-                bw.write(box.getRect().getCenterX() + " " + box.getRect().getCenterY() + " " + box.getRect().getWidth());
+                line.appendExact(box.getRect().getCenterX()).append(' ').appendExact(box.getRect().getCenterY()).append(' ').appendExact(box.getRect().getWidth());
+                line.writeTo(bw);
                 bw.newLine();
             }
 
             // Positions of the static obstacles
             for (Box box : staticObstacles) {
-                bw.write(box.getRect().getMinX() + " " + box.getRect().getMaxY() + " " + box.getRect().getMaxX() + " " + box.getRect().getMinY());
+                line.appendExact(box.getRect().getMinX()).append(' ').appendExact(box.getRect().getMaxY()).append(' ').appendExact(box.getRect().getMaxX()).append(' ').appendExact(box.getRect().getMinY());
+                line.writeTo(bw);
                 bw.newLine();
             }
 
@@ -229,6 +279,15 @@ public class ProblemTester {
         return verifyProblem(ps);
     }
 
+    /**
+     * Get a random number from this tester's generator
+     *
+     * @return a random number in [0, 1)
+     */
+    private double random() {
+        return random.nextDouble();
+    }
+
     public void generateProblem() {
 
         // Reset previous configuration
@@ -260,10 +319,6 @@ public class ProblemTester {
 //        int moveableObstacleCount = (int) (random() * 3 + 6); // 6 - 8 moveableObstacles
 //        int staticObstacleCount = (int) (random() * 11) + 2; // 2 - 12 staticObstacles
 
-        int goalBoxCount = 10;
-        int moveableObstacleCount = 8;
-        int staticObstacleCount = 12;
-
         ArrayList<Box> allBoxes = new ArrayList<>();
 
         // Goal boxes
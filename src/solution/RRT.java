@@ -1,6 +1,8 @@
 package solution;
 
 import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * An abstract rapidly exploring random tree
@@ -8,83 +10,240 @@ import java.util.ArrayList;
  * @param <T> the state class
  * @param <U> the action class
  */
-public abstract class RRT<T extends State, U> {
+public abstract class RRT<T extends State<T>, U> {
     /**
      * Max distance a node can randomly expand doing RRT
      */
-    private static double MAX_DISTANCE = 0.2;
+    protected static double MAX_DISTANCE = 0.2;
 
     /**
      * Max number of nodes before exiting search
      */
-    private static int MAX_NODES = 3000;
+    protected static int MAX_NODES = 3000;
 
     /**
-     * The tree of states
+     * The tree of states, stored as arrays. Nodes are referred to by their index in the tree, and
+     * -1 means no node.
      */
-    protected TreeNode<T, U> tree;
+    protected CompactTree<T, U> tree;
 
     /**
-     * List of all the nodes
+     * Index used to find the nearest node to a new state
      */
-    protected ArrayList<TreeNode<T, U>> nodes;
+    private NearestNodeIndex<T, U> nearestNodeIndex;
 
     /**
-     * The solution node for this RRT.
+     * The obstacles the tree is grown against. A snapshot of getObstacles taken when first needed.
+     */
+    private ObstacleGrid searchObstacles;
+
+    /**
+     * The portfolio this RRT is racing in, null if it is solved on its own
+     */
+    private RRTPortfolio<?> portfolio;
+
+    /**
+     * Set when a search running alongside this one has failed, null if there are none
+     */
+    private AtomicBoolean cancelFlag;
+
+    /**
+     * The generator used to sample new states
+     */
+    private SplittableRandom random;
+
+    /**
+     * The solution node for this RRT. The path to it is built as TreeNodes when it is found, so it
+     * doesn't depend on the tree.
      */
     protected TreeNode<T, U> solutionNode = null;
 
     /**
      * The visualiser attached to this RRT.
      */
-    public Visualiser visualiser;
+    public Visualiser<T, U> visualiser;
+
+    /**
+     * The context of the solve this RRT is part of
+     */
+    protected PlanningContext context;
 
     /**
      * Construct an RRT
+     *
+     * @param context the context of the solve this RRT is part of
+     */
+    public RRT(PlanningContext context) {
+        this(context, context.splitRandom());
+    }
+
+    /**
+     * Construct an RRT that samples from its own generator rather than one split off the context's
+     *
+     * @param context the context of the solve this RRT is part of
+     * @param random the generator to sample new states with
      */
-    public RRT() {
-        // List of all the nodes
-        nodes = new ArrayList<>();
+    public RRT(PlanningContext context, SplittableRandom random) {
+        this.context = context;
+        this.random = random;
+    }
+
+    /**
+     * Create the tree with a root. Called by subclass constructors.
+     *
+     * @param codec converts the tree's states to and from coordinates
+     * @param root the state at the root
+     */
+    protected void createTree(StateCodec<T, U> codec, T root) {
+        tree = new CompactTree<>(codec);
+        nearestNodeIndex = new KdTreeNearestNodeIndex<>(tree);
+
+        addNode(-1, root);
     }
 
     /**
-     * Expand the tree one step.
+     * Expand the tree one step, or give up once cancelled.
      *
      * @return if a solution is found or not
      */
     private boolean expand() {
-        // Sample a random node in free space
-        while (true) {
-            try {
-                T newRandomState = newRandomState();
+        // Sample a random node in free space. Rejected samples are reported with return values
+        // rather than exceptions, since in cluttered workspaces most samples are rejected. When
+        // nothing can be added this could go on forever, so stop when asked to.
+        while (!isCancelled()) {
+            T newRandomState = newRandomState();
+
+            // Make sure this is valid, otherwise try again
+            if (!isStateValid(newRandomState)) {
+                continue;
+            }
+
+            // Step towards the new random state and add it to the tree
+            int newNode = extend(newRandomState);
+
+            if (newNode != -1) {
+                return checkAndClaimSolution(newNode);
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Check to see if the current tree has a solution. When racing in a portfolio, the copies take
+     * turns checking since it can change the workspace, and only the first to find a solution
+     * wins.
+     *
+     * @param newestNode the index of the most recent node added to the tree
+     *
+     * @return if a solution is found or not
+     */
+    private boolean checkAndClaimSolution(int newestNode) {
+        if (portfolio == null) {
+            return checkSolution(newestNode);
+        }
+
+        return portfolio.checkAndClaim(this, () -> checkSolution(newestNode));
+    }
+
+    /**
+     * Claim a solution found without checkSolution. Always succeeds outside a portfolio.
+     *
+     * @return whether this RRT is the first to find a solution
+     */
+    protected boolean claimSolution() {
+        return portfolio == null || portfolio.claim(this);
+    }
+
+    /**
+     * Whether another copy in this RRT's portfolio has already found a solution, a search
+     * running alongside this one has failed, or the thread searching has been interrupted
+     *
+     * @return true if this RRT should stop searching
+     */
+    protected boolean isCancelled() {
+        return (portfolio != null && portfolio.isFinished()) ||
+                       (cancelFlag != null && cancelFlag.get()) ||
+                       Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * Stop searching at the next expansion once a flag is set
+     *
+     * @param cancelFlag the flag
+     */
+    void cancelWhen(AtomicBoolean cancelFlag) {
+        this.cancelFlag = cancelFlag;
+    }
+
+    /**
+     * Race this RRT in a portfolio
+     *
+     * @param portfolio the portfolio
+     */
+    void joinPortfolio(RRTPortfolio<?> portfolio) {
+        this.portfolio = portfolio;
+    }
+
+    /**
+     * Extend the tree one step of up to MAX_DISTANCE towards a state, from the nearest node.
+     *
+     * @param state the state to extend towards
+     *
+     * @return the index of the new node, or -1 if the step is not possible
+     */
+    protected int extend(T state) {
+        // Get the nearest node to the new one
+        int node = nearestNode(state);
+
+        // Step towards the state up to MAX_DISTANCE
+        T newState = tree.getState(node).tryStepTowards(state, MAX_DISTANCE);
+
+        // Make sure this is valid still
+        if (newState == null || !isStateValid(newState)) {
+            return -1;
+        }
 
-                // Get the nearest node to the new one
-                TreeNode<T, U> node = nearestNode(newRandomState);
+        // Add the new state to the tree
+        return tryConnectNodeToState(node, newState);
+    }
 
-                // Make sure this is valid
-                validateState(newRandomState);
+    /**
+     * Greedily extend the tree towards a state in steps of up to MAX_DISTANCE until either the
+     * state is reached or a step is not possible. Nodes added before a failed step stay in the
+     * tree.
+     *
+     * @param state the state to connect to
+     *
+     * @return the index of the node holding the state if it was reached, -1 otherwise
+     */
+    protected int connect(T state) {
+        int node = nearestNode(state);
 
-                // Step towards the new random state up to MAX_DISTANCE
-                T newState = (T) node.getState().stepTowards(newRandomState, MAX_DISTANCE);
+        while (node != -1) {
+            T newState = tree.getState(node).tryStepTowards(state, MAX_DISTANCE);
 
-                // Make sure this is valid still
-                validateState(newState);
+            // Trapped before reaching the state
+            if (newState == null || !isStateValid(newState)) {
+                return -1;
+            }
 
-                // Add the new state to the tree
-                TreeNode<T, U> newNode = connectNodeToState(node, newState, true);
+            node = tryConnectNodeToState(node, newState);
 
-                return checkSolution(newNode);
-            } catch (InvalidStateException e) {
-                // If this happens, try again. Means the new state is in collision
+            // tryStepTowards hands back the state itself once it is within reach
+            if (newState == state) {
+                return node;
             }
         }
+
+        return -1;
     }
 
     /**
      * Solve this rrt. If a visualiser is attached, the solution will be drawn on it.
      */
     public boolean solve() {
-        while (nodes.size() <= MAX_NODES) {
+        while (tree.size() <= MAX_NODES && !isCancelled()) {
             if (expand()) {
                 if (visualiserAttached()) {
                     visualiser.paintSolution(solutionNode);
@@ -94,7 +253,7 @@ public abstract class RRT<T extends State, U> {
             }
 
             if (visualiserAttached()) {
-                visualiser.paintTree(tree);
+                visualiser.paintTree(tree.toTreeNode());
             }
         }
 
@@ -104,16 +263,18 @@ public abstract class RRT<T extends State, U> {
     /**
      * Check to see if the current tree has a solution
      *
+     * @param newestNode the index of the most recent node added to the tree
+     *
      * @return if a solution is found or not
      */
-    protected abstract boolean checkSolution(TreeNode<T, U> newestNode);
+    protected abstract boolean checkSolution(int newestNode);
 
     /**
      * Attach a visualiser to this RRT.
      *
      * @param visualiser the visualiser to attach
      */
-    public void attachVisualiser(Visualiser visualiser) {
+    public void attachVisualiser(Visualiser<T, U> visualiser) {
         this.visualiser = visualiser;
     }
 
@@ -122,45 +283,101 @@ public abstract class RRT<T extends State, U> {
      *
      * @param state the state to find the node nearest to
      *
-     * @return the nearest node
+     * @return the index of the nearest node
      */
-    private TreeNode<T, U> nearestNode(T state) {
-        TreeNode<T, U> bestNode = nodes.get(0);
-        double shortestDistance = state.distanceTo(bestNode.getState());
-
-        for (TreeNode<T, U> node : nodes) {
-            double distance = node.getState().distanceTo(state);
+    private int nearestNode(T state) {
+        return nearestNodeIndex.nearest(state);
+    }
 
-            if (distance < shortestDistance) {
-                shortestDistance = distance;
-                bestNode = node;
-            }
+    /**
+     * Set the index used to find the nearest node. Any nodes already in the tree are added to the
+     * new index.
+     *
+     * @param nearestNodeIndex an empty index over this RRT's tree (see getTree)
+     */
+    public void setNearestNodeIndex(NearestNodeIndex<T, U> nearestNodeIndex) {
+        for (int node = 0; node < tree.size(); node++) {
+            nearestNodeIndex.add(node);
         }
 
-        return bestNode;
+        this.nearestNodeIndex = nearestNodeIndex;
     }
 
     /**
-     * Attempt to connect a node to a state.
+     * Attempt to connect a node to a state, adding any new nodes to the tree.
      *
-     * @param node the parent node
+     * @param node the index of the parent node
      * @param state the child state
-     * @param addChild whether to add the new node to the tree or not
+     *
+     * @return the index of the node holding the state
      *
      * @throws InvalidStateException if there is no connection
      */
-    protected abstract TreeNode<T, U> connectNodeToState(TreeNode<T, U> node, T state,
-            boolean addChild) throws InvalidStateException;
+    protected int connectNodeToState(int node, T state) throws InvalidStateException {
+        int newNode = tryConnectNodeToState(node, state);
+
+        if (newNode == -1) {
+            throw new InvalidStateException();
+        }
+
+        return newNode;
+    }
+
+    /**
+     * Attempt to connect a node to a state, adding any new nodes to the tree. Same as
+     * connectNodeToState, but reports no connection by returning -1 instead of throwing.
+     *
+     * @param node the index of the parent node
+     * @param state the child state
+     *
+     * @return the index of the node holding the state, or -1 if there is no connection
+     */
+    protected abstract int tryConnectNodeToState(int node, T state);
+
+    /**
+     * Add a node to the tree and the nearest node index
+     *
+     * @param parent the index of the parent node, -1 for the root
+     * @param state the state of the new node
+     *
+     * @return the index of the new node
+     */
+    protected int addNode(int parent, T state) {
+        int node = tree.add(parent, state);
+        nearestNodeIndex.add(node);
+
+        return node;
+    }
+
+    /**
+     * Set the solution to a node in the tree. The path from the root to the node is built as
+     * TreeNodes, with the actions rebuilt from the states.
+     *
+     * @param node the index of the solution node
+     */
+    protected void setSolution(int node) {
+        ArrayList<TreeNode<T, U>> path = tree.pathFromRoot(node);
+
+        solutionNode = path.get(path.size() - 1);
+    }
 
     /**
-     * Add a child node to a parent, and also add to the list of nodes.
+     * Drop the explored tree. The solution path was built as TreeNodes when it was found, so
+     * getSolution and the path methods give the same results, while the tree's arrays can be
+     * garbage collected. Call once the tree won't be searched any further.
+     */
+    public void compact() {
+        tree = null;
+        nearestNodeIndex = null;
+    }
+
+    /**
+     * Get the tree of states, e.g. to build a nearest node index over it
      *
-     * @param parent the parent node
-     * @param child the child node
+     * @return the tree, or null once compacted
      */
-    protected void addChildNode(TreeNode<T, U> parent, TreeNode<T, U> child) {
-        parent.addChild(child);
-        nodes.add(child);
+    public CompactTree<T, U> getTree() {
+        return tree;
     }
 
     /**
@@ -179,6 +396,25 @@ public abstract class RRT<T extends State, U> {
      */
     protected abstract T newRandomState();
 
+    /**
+     * Get a random number from this RRT's generator
+     *
+     * @return a random number in [0, 1)
+     */
+    protected double random() {
+        return random.nextDouble();
+    }
+
+    /**
+     * Split a generator off this RRT's, so another RRT can sample on the same thread without
+     * touching the context's generator
+     *
+     * @return the new generator
+     */
+    protected SplittableRandom splitRandom() {
+        return random.split();
+    }
+
     /**
      * Whether this rrt has a visualiser attached
      *
@@ -195,12 +431,48 @@ public abstract class RRT<T extends State, U> {
      *
      * @throws InvalidStateException if the state is invalid
      */
-    protected abstract void validateState(T state) throws InvalidStateException;
+    protected void validateState(T state) throws InvalidStateException {
+        if (!isStateValid(state)) {
+            throw new InvalidStateException();
+        }
+    }
+
+    /**
+     * Check if a state is valid
+     *
+     * @param state the state to check
+     *
+     * @return whether the state is valid or not
+     */
+    protected abstract boolean isStateValid(T state);
 
     /**
      * Get the obstacles to avoid
      *
      * @return the obstacles to avoid
      */
-    public abstract ArrayList<Box> getObstacles();
+    public abstract ObstacleGrid getObstacles();
+
+    /**
+     * Get the obstacles the tree is grown against. The obstacles don't change while the tree is
+     * being searched, so they are read from the workspace once.
+     *
+     * @return the obstacles to avoid
+     */
+    protected ObstacleGrid getSearchObstacles() {
+        if (searchObstacles == null) {
+            searchObstacles = getObstacles();
+        }
+
+        return searchObstacles;
+    }
+
+    /**
+     * Set the obstacles the tree is grown against, e.g. to share them with a second tree.
+     *
+     * @param searchObstacles the obstacles to avoid
+     */
+    protected void setSearchObstacles(ObstacleGrid searchObstacles) {
+        this.searchObstacles = searchObstacles;
+    }
 }
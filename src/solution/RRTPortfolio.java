@@ -0,0 +1,226 @@
+package solution;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Runs several independent copies of the same RRT query at once. The first copy to find a solution
+ * wins and the rest stop at their next expansion.
+ *
+ * While searching, each copy only reads its own snapshot of the obstacles. Checking for a solution
+ * can change the workspace (see MoveableObstacleRRT.finishSolution), so copies take turns doing it
+ * while holding the portfolio's check lock. Copies that are only searching never wait for it.
+ *
+ * Every portfolio runs its copies on one shared pool with a thread per processor. A query made
+ * from inside a copy (a nested portfolio) is solved on the copy's own thread, so the number of
+ * threads doesn't multiply with each level of nesting.
+ *
+ * @param <R> the RRT class
+ */
+public class RRTPortfolio<R extends RRT<?, ?>> {
+    /**
+     * The pool every portfolio runs its copies on
+     */
+    private static final ForkJoinPool POOL = new ForkJoinPool(
+            Runtime.getRuntime().availableProcessors()
+    );
+
+    /**
+     * Creates a copy of an RRT query
+     *
+     * @param <R> the RRT class
+     */
+    public interface Factory<R> {
+        /**
+         * Create a new RRT for the query
+         *
+         * @return the new RRT
+         *
+         * @throws NoPathException if the query has no solution
+         */
+        R create() throws NoPathException;
+    }
+
+    /**
+     * The copy that found a solution first
+     */
+    private final AtomicReference<RRT<?, ?>> winner = new AtomicReference<>();
+
+    /**
+     * Set when the copies should stop, because the race is over or whoever is waiting for it was
+     * interrupted
+     */
+    private final AtomicBoolean stopped = new AtomicBoolean(false);
+
+    /**
+     * Held by a copy while it checks for a solution
+     */
+    private final Object checkLock = new Object();
+
+    /**
+     * Number of copies still searching
+     */
+    private int running;
+
+    /**
+     * Private constructor
+     */
+    private RRTPortfolio() {}
+
+    /**
+     * Solve a query with several copies
+     *
+     * @param copies the number of copies (see PlanningContext.getPortfolioCopies). 1 solves on the
+     * calling thread as usual, as does any number when called from inside another portfolio's
+     * copy.
+     * @param factory creates the copies
+     * @param <R> the RRT class
+     *
+     * @return the copy that found a solution, or null if none did
+     *
+     * @throws NoPathException if the factory does
+     */
+    public static <R extends RRT<?, ?>> R solve(int copies, Factory<R> factory)
+            throws NoPathException {
+        if (copies <= 1 || isInPool()) {
+            R rrt = factory.create();
+            return rrt.solve() ? rrt : null;
+        }
+
+        return new RRTPortfolio<R>().race(factory, copies);
+    }
+
+    /**
+     * Race copies of a query against each other on the shared pool. Waiting is done on this
+     * object's monitor rather than by joining the tasks, so the calling thread never picks up
+     * someone else's search. Doesn't return while a copy is checking for a solution, so the
+     * caller never sees the workspace halfway through a change.
+     *
+     * @param factory creates the copies
+     * @param count the number of copies
+     *
+     * @return the copy that found a solution, or null if none did
+     *
+     * @throws NoPathException if the factory does
+     */
+    private R race(Factory<R> factory, int count) throws NoPathException {
+        // Create the copies and take their obstacle snapshots before any of them start
+        ArrayList<R> rrts = new ArrayList<>();
+
+        for (int i = 0; i < count; i++) {
+            R rrt = factory.create();
+            rrt.getSearchObstacles();
+            rrt.joinPortfolio(this);
+            rrts.add(rrt);
+        }
+
+        try {
+            synchronized (this) {
+                running = count;
+
+                for (R rrt : rrts) {
+                    POOL.execute(() -> {
+                        try {
+                            rrt.solve();
+                        } finally {
+                            copyFinished();
+                        }
+                    });
+                }
+
+                while (running > 0 && winner.get() == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        // The copies don't see this thread's interrupt, so tell them to stop
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+
+            for (R rrt : rrts) {
+                if (rrt == winner.get()) {
+                    return rrt;
+                }
+            }
+
+            return null;
+        } finally {
+            // Losing copies stop at their next expansion. Once stopped is set no copy starts a new
+            // check, so taking the check lock waits out the one in progress, if any.
+            stopped.set(true);
+
+            synchronized (checkLock) {
+                // Nothing to do, the copies have all stopped changing the workspace
+            }
+        }
+    }
+
+    /**
+     * Whether the calling thread is one of the shared pool's, i.e. is running a portfolio copy
+     *
+     * @return true if the calling thread is in the pool
+     */
+    private static boolean isInPool() {
+        Thread thread = Thread.currentThread();
+
+        return thread instanceof ForkJoinWorkerThread &&
+                       ((ForkJoinWorkerThread) thread).getPool() == POOL;
+    }
+
+    /**
+     * Record that a copy has stopped searching
+     */
+    private synchronized void copyFinished() {
+        running--;
+        notifyAll();
+    }
+
+    /**
+     * Whether the copies should stop searching, because a copy has already won or the race was
+     * given up. Doesn't lock, since every copy asks at every expansion.
+     *
+     * @return true if the race is over
+     */
+    boolean isFinished() {
+        return winner.get() != null || stopped.get();
+    }
+
+    /**
+     * Check for a solution while no other copy is checking, and claim the win if there is one
+     *
+     * @param rrt the copy checking
+     * @param check checks for a solution
+     *
+     * @return true if the copy found a solution and is the first to claim
+     */
+    boolean checkAndClaim(RRT<?, ?> rrt, BooleanSupplier check) {
+        synchronized (checkLock) {
+            return !isFinished() && check.getAsBoolean() && claim(rrt);
+        }
+    }
+
+    /**
+     * Claim the win for a copy
+     *
+     * @param rrt the copy that found a solution
+     *
+     * @return true if it is the first to claim
+     */
+    boolean claim(RRT<?, ?> rrt) {
+        if (!winner.compareAndSet(null, rrt)) {
+            return false;
+        }
+
+        synchronized (this) {
+            notifyAll();
+        }
+
+        return true;
+    }
+}
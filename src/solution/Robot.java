@@ -25,6 +25,11 @@ public class Robot {
      */
     private double width;
 
+    /**
+     * The ends of the robot, kept up to date by the constructor and move
+     */
+    private double x1, y1, x2, y2;
+
     /**
      * Construct a robot with centre point pos and angle theta
      *
@@ -36,6 +41,7 @@ public class Robot {
         this.pos = pos;
         this.theta = theta;
         this.width = width;
+        updateEnds();
     }
 
     /**
@@ -74,7 +80,7 @@ public class Robot {
      * @return the x position of end 1
      */
     private double getX1() {
-        return pos.getX() - cos(theta) * width / 2;
+        return x1;
     }
 
     /**
@@ -83,7 +89,7 @@ public class Robot {
      * @return the x position of end 2
      */
     private double getX2() {
-        return pos.getX() + cos(theta) * width / 2;
+        return x2;
     }
 
     /**
@@ -92,7 +98,7 @@ public class Robot {
      * @return the y position of end 1
      */
     private double getY1() {
-        return pos.getY() - sin(theta) * width / 2;
+        return y1;
     }
 
     /**
@@ -101,7 +107,17 @@ public class Robot {
      * @return the y position of end 2
      */
     private double getY2() {
-        return pos.getY() + sin(theta) * width / 2;
+        return y2;
+    }
+
+    /**
+     * Recalculate the ends of the robot from the centre and angle
+     */
+    private void updateEnds() {
+        x1 = pos.getX() - cos(theta) * width / 2;
+        y1 = pos.getY() - sin(theta) * width / 2;
+        x2 = pos.getX() + cos(theta) * width / 2;
+        y2 = pos.getY() + sin(theta) * width / 2;
     }
 
     /**
@@ -160,15 +176,13 @@ public class Robot {
      */
     public boolean isValid(ArrayList<Box> staticObstacles) {
         // Check if the robot is inside the workspace
-        Rectangle2D boundingRectangle = new Rectangle2D.Double(0, 0, 1, 1);
-        if (!boundingRectangle.contains(getLine().getP1()) ||
-                    !boundingRectangle.contains(getLine().getP2())) {
+        if (!isInsideWorkspace()) {
             return false;
         }
 
         // Check if the robot collides with any static obstacles
         for (Box box : staticObstacles) {
-            if (box.getRect().intersectsLine(getLine())) {
+            if (box.intersectsLine(x1, y1, x2, y2)) {
                 return false;
             }
         }
@@ -176,6 +190,44 @@ public class Robot {
         return true;
     }
 
+    /**
+     * Check if the robot configuration is valid against an obstacle index. Same as isValid with a
+     * list, but only nearby obstacles are checked.
+     *
+     * @param obstacles the obstacles
+     *
+     * @return whether the robot is valid or not
+     */
+    public boolean isValid(ObstacleGrid obstacles) {
+        // Check if the robot is inside the workspace
+        if (!isInsideWorkspace()) {
+            return false;
+        }
+
+        return !obstacles.intersectsLine(x1, y1, x2, y2);
+    }
+
+    /**
+     * Check if the robot touches a box
+     *
+     * @param box the box
+     *
+     * @return whether the robot intersects the box
+     */
+    public boolean intersects(Box box) {
+        return box.intersectsLine(x1, y1, x2, y2);
+    }
+
+    /**
+     * Check if both ends of the robot are inside the workspace. Same as Rectangle2D.contains for
+     * the unit square, so the right and top edges are outside.
+     *
+     * @return whether the robot is inside the workspace
+     */
+    private boolean isInsideWorkspace() {
+        return x1 >= 0 && y1 >= 0 && x1 < 1 && y1 < 1 && x2 >= 0 && y2 >= 0 && x2 < 1 && y2 < 1;
+    }
+
     /**
      * Calculate the distance between this robot and a second robot. This represents maximum
      * distance the ends of the robot will have to move
@@ -190,6 +242,41 @@ public class Robot {
         ));
     }
 
+    /**
+     * Calculate how far the ends of a robot move when it is moved. Gives the same result as
+     * distanceToOtherRobot between the robot and a moved clone, without creating either.
+     *
+     * @param x the x position of the robot
+     * @param y the y position of the robot
+     * @param theta the angle of the robot
+     * @param width the width of the robot
+     * @param dx change in x
+     * @param dy change in y
+     * @param dtheta change in theta
+     *
+     * @return the maximum distance
+     */
+    public static double distanceMoved(double x, double y, double theta, double width, double dx,
+            double dy, double dtheta) {
+        double newX = x + dx;
+        double newY = y + dy;
+        double newTheta = mod(theta + dtheta, 2 * PI);
+
+        double x1 = x - cos(theta) * width / 2;
+        double y1 = y - sin(theta) * width / 2;
+        double x2 = x + cos(theta) * width / 2;
+        double y2 = y + sin(theta) * width / 2;
+
+        double newX1 = newX - cos(newTheta) * width / 2;
+        double newY1 = newY - sin(newTheta) * width / 2;
+        double newX2 = newX + cos(newTheta) * width / 2;
+        double newY2 = newY + sin(newTheta) * width / 2;
+
+        return sqrt(max(pow(newX1 - x1, 2) + pow(newY1 - y1, 2),
+                pow(newX2 - x2, 2) + pow(newY2 - y2, 2)
+        ));
+    }
+
     /**
      * Move the robot
      *
@@ -200,6 +287,7 @@ public class Robot {
     public void move(double dx, double dy, double dtheta) {
         pos.setLocation(pos.getX() + dx, pos.getY() + dy);
         theta = mod(theta + dtheta, 2 * PI);
+        updateEnds();
     }
 
     /**
@@ -10,9 +10,12 @@ public class RobotActionVisualiser extends JComponent {
 
     protected AffineTransform transform;
 
-    public RobotActionVisualiser(ArrayList<RobotAction> robotPath) {
+    private PlanningContext context;
+
+    public RobotActionVisualiser(PlanningContext context, ArrayList<RobotAction> robotPath) {
         this.setBackground(Color.WHITE);
         this.setOpaque(true);
+        this.context = context;
         this.robotPath = robotPath;
         repaint();
     }
@@ -29,14 +32,14 @@ public class RobotActionVisualiser extends JComponent {
         g2.fillRect(0, 0, getWidth(), getHeight());
 
         g2.setColor(Color.BLACK);
-        for (Box obstacle : Workspace.getInstance().getStaticObstacles()) {
+        for (Box obstacle : context.getWorkspace().getStaticObstacles()) {
             Shape shape = transform.createTransformedShape(obstacle.getRect());
             g2.fill(shape);
         }
 
         // Draw all the moveable obstacles
         g2.setColor(Color.GREEN);
-        for (Box obstacle : Workspace.getInstance().getMoveableObstacles()) {
+        for (Box obstacle : context.getWorkspace().getMoveableObstacles()) {
             Shape shape = transform.createTransformedShape(obstacle.getRect());
             g2.fill(shape);
         }
@@ -1,9 +1,8 @@
 package solution;
 
-import java.util.ArrayList;
+import java.util.SplittableRandom;
 
 import static java.lang.Math.PI;
-import static java.lang.Math.random;
 import static solution.Utility.angleBetween;
 import static solution.Utility.smallestAngleBetween;
 
@@ -26,69 +25,202 @@ public class RobotRRT extends RRT<RobotState, RobotAction> {
      */
     private Box boxToPush;
 
+    /**
+     * Whether to also grow a tree from the goal and join the two (RRT-Connect)
+     */
+    private boolean bidirectional;
+
+    /**
+     * Construct a RobotRRT
+     *
+     * @param context the context of the solve this RRT is part of
+     * @param initialRobot the initial robot
+     * @param goalRobot the goal robot
+     * @param boxToPush the box the robot is pushing
+     * @param bidirectional whether to grow a second tree from the goal
+     */
+    public RobotRRT(PlanningContext context, Robot initialRobot, Robot goalRobot, Box boxToPush,
+            boolean bidirectional) throws NoPathException {
+        this(context, initialRobot, goalRobot, boxToPush);
+        this.bidirectional = bidirectional;
+    }
+
     /**
      * Construct a RobotRRT
      *
+     * @param context the context of the solve this RRT is part of
      * @param initialRobot the initial robot
      * @param boxToPush the box the robot is pushing
      */
-    public RobotRRT(Robot initialRobot, Robot goalRobot,
+    public RobotRRT(PlanningContext context, Robot initialRobot, Robot goalRobot,
             Box boxToPush)
             throws NoPathException {
+        this(context, initialRobot, goalRobot, boxToPush, context.splitRandom());
+
         // Check to make sure the initial and goal configurations are valid
-        if (!initialRobot.isValid(Workspace.getInstance().getAllObstacles()) ||
-                    !goalRobot.isValid(Workspace.getInstance().getAllObstacles())) {
+        if (!initialRobot.isValid(context.getWorkspace().getAllObstacleGrid()) ||
+                    !goalRobot.isValid(context.getWorkspace().getAllObstacleGrid())) {
             throw new NoPathException("Initial or final states for the robot are not valid.");
         }
+    }
+
+    /**
+     * Construct a RobotRRT that samples from its own generator, without checking the initial and
+     * goal configurations. Used for the goal tree, whose ends have already been checked.
+     *
+     * @param context the context of the solve this RRT is part of
+     * @param initialRobot the initial robot
+     * @param goalRobot the goal robot
+     * @param boxToPush the box the robot is pushing
+     * @param random the generator to sample new states with
+     */
+    private RobotRRT(PlanningContext context, Robot initialRobot, Robot goalRobot, Box boxToPush,
+            SplittableRandom random) {
+        super(context, random);
 
         this.initialRobot = initialRobot;
         this.goalRobot = goalRobot;
         this.boxToPush = boxToPush;
 
         // Make an initial tree
-        tree = new TreeNode<>(new RobotState(initialRobot), null);
+        createTree(new RobotStateCodec(initialRobot.getWidth()), new RobotState(initialRobot));
+    }
+
+    /**
+     * Solve this rrt. In bidirectional mode a second tree is grown from the goal, and the two trees
+     * take turns extending towards a random state and greedily connecting to the other tree's new
+     * node (RRT-Connect). The node budget is shared between the trees.
+     *
+     * @return if a solution is found or not
+     */
+    @Override
+    public boolean solve() {
+        if (!bidirectional) {
+            return super.solve();
+        }
+
+        // The ends were already checked by this tree's constructor
+        RobotRRT goalTree = new RobotRRT(context, goalRobot, initialRobot, boxToPush,
+                splitRandom()
+        );
+
+        goalTree.setSearchObstacles(getSearchObstacles());
+
+        RobotRRT growingTree = this;
+        RobotRRT connectingTree = goalTree;
+
+        while (tree.size() + goalTree.tree.size() <= MAX_NODES && !isCancelled()) {
+            RobotState newRandomState = growingTree.newRandomState();
+
+            // Take a step towards it if it is valid, then try to reach the new node from the other
+            // tree
+            int newNode = growingTree.isStateValid(newRandomState) ?
+                                  growingTree.extend(newRandomState) : -1;
 
-        // Add the root to nodes
-        nodes.add(tree);
+            if (newNode != -1) {
+                int reachedNode = connectingTree.connect(growingTree.tree.getState(newNode));
+
+                if (reachedNode != -1) {
+                    boolean joined = growingTree == this ?
+                                             joinGoalTree(newNode, goalTree, reachedNode) :
+                                             joinGoalTree(reachedNode, goalTree, newNode);
+
+                    if (joined && claimSolution()) {
+                        if (visualiserAttached()) {
+                            visualiser.paintSolution(solutionNode);
+                        }
+
+                        return true;
+                    }
+                }
+            }
+
+            // Swap the roles of the trees
+            RobotRRT previousGrowingTree = growingTree;
+            growingTree = connectingTree;
+            connectingTree = previousGrowingTree;
+
+            if (visualiserAttached()) {
+                visualiser.paintTree(tree.toTreeNode());
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Join the goal tree onto this tree. Walks from the meeting node in the goal tree up to the
+     * goal, adding each configuration on the way to this tree so the solution can be read from the
+     * root as usual.
+     *
+     * @param node the index of the meeting node in this tree
+     * @param goalTree the tree grown from the goal
+     * @param goalTreeNode the index of the node in the goal tree at the same configuration
+     *
+     * @return whether the trees were joined
+     */
+    private boolean joinGoalTree(int node, RobotRRT goalTree, int goalTreeNode) {
+        // Retrace each goal tree edge in reverse
+        for (int goalTreeParent = goalTree.tree.getParent(goalTreeNode); goalTreeParent != -1;
+             goalTreeParent = goalTree.tree.getParent(goalTreeParent)) {
+            node = tryConnectNodeToState(node, goalTree.tree.getState(goalTreeParent));
+
+            // A reversed edge wasn't valid, keep searching
+            if (node == -1) {
+                return false;
+            }
+        }
+
+        // Finish exactly at the goal
+        int goalNode = tryConnectNodeToState(node, new RobotState(goalRobot));
+
+        if (goalNode == -1) {
+            return false;
+        }
+
+        setSolution(goalNode);
+
+        return true;
     }
 
     /**
      * Check to see if the current tree has a solution
      *
+     * @param newestNode the index of the most recent node added to the tree
+     *
      * @return if a solution is found or not
      */
     @Override
-    protected boolean checkSolution(TreeNode<RobotState, RobotAction> newestNode) {
-        try {
-            // Try to connect to the goal
-            solutionNode = connectNodeToState(newestNode, new RobotState(goalRobot), true);
+    protected boolean checkSolution(int newestNode) {
+        // Try to connect to the goal
+        int goalNode = tryConnectNodeToState(newestNode, new RobotState(goalRobot));
 
-            return true;
-        } catch (InvalidStateException e) {
+        if (goalNode == -1) {
             // Couldn't connect to the goal. Exit the loop
             return false;
         }
+
+        setSolution(goalNode);
+
+        return true;
     }
 
     /**
      * Attempt to connect a node to a state
      *
-     * @param node the parent node
+     * @param node the index of the parent node
      * @param state the child state
-     * @param addChild whether to add the new node to the tree or not
-     *
-     * @return a new node containing the child state. Will return node if they are in the same
-     * place.
      *
-     * @throws InvalidStateException if this is not possible
+     * @return the index of a new node containing the child state. Will return node if they are in
+     * the same place, and -1 if this is not possible.
      */
     @Override
-    protected TreeNode<RobotState, RobotAction> connectNodeToState(
-            TreeNode<RobotState, RobotAction> node, RobotState state, boolean addChild)
-            throws InvalidStateException {
-        double nodeX = node.getState().getRobot().getPos().getX();
-        double nodeY = node.getState().getRobot().getPos().getY();
-        double nodeTheta = node.getState().getRobot().getTheta();
+    protected int tryConnectNodeToState(int node, RobotState state) {
+        RobotState nodeState = tree.getState(node);
+
+        double nodeX = nodeState.getRobot().getPos().getX();
+        double nodeY = nodeState.getRobot().getPos().getY();
+        double nodeTheta = nodeState.getRobot().getTheta();
 
         double stateX = state.getRobot().getPos().getX();
         double stateY = state.getRobot().getPos().getY();
@@ -101,18 +233,17 @@ public class RobotRRT extends RRT<RobotState, RobotAction> {
         double dtheta = angleBetween(nodeTheta, stateTheta) < PI ? smallestAngle : -smallestAngle;
 
         if (!(dx == 0 && dy == 0 && dtheta == 0)) {
-            // Check if the action is valid. Will throw an
-            // InvalidStateException if not.
-            TreeNode<RobotState, RobotAction> newNode = node.getState().action(dx, dy, dtheta,
-                    boxToPush, getObstacles()
+            // Check if the action is valid. Will return null if not.
+            RobotState newState = nodeState.tryMove(dx, dy, dtheta, boxToPush,
+                    getSearchObstacles(), context.getStepSize()
             );
 
-            // Add the new node to the tree
-            if (addChild) {
-                addChildNode(node, newNode);
+            if (newState == null) {
+                return -1;
             }
 
-            return newNode;
+            // Add the new node to the tree
+            return addNode(node, newState);
         }
 
         // They're already in the same place. Just return the node
@@ -144,15 +275,15 @@ public class RobotRRT extends RRT<RobotState, RobotAction> {
     }
 
     /**
-     * Validate a state
+     * Check if a state is valid
      *
-     * @param state the state to validate
+     * @param state the state to check
      *
-     * @throws InvalidStateException if the state is invalid
+     * @return whether the state is valid or not
      */
     @Override
-    protected void validateState(RobotState state) throws InvalidStateException {
-        state.validate(getObstacles(), boxToPush);
+    protected boolean isStateValid(RobotState state) {
+        return state.isValid(getSearchObstacles(), boxToPush);
     }
 
     /**
@@ -161,7 +292,7 @@ public class RobotRRT extends RRT<RobotState, RobotAction> {
      * @return the obstacles to avoid
      */
     @Override
-    public ArrayList<Box> getObstacles() {
-        return Workspace.getInstance().getAllObstacles();
+    public ObstacleGrid getObstacles() {
+        return context.getWorkspace().getAllObstacleGrid();
     }
 }
@@ -0,0 +1,645 @@
+package solution;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.SplittableRandom;
+
+import static java.lang.Math.PI;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A probabilistic roadmap for the robot, shared by every robot transit between pushes. The
+ * roadmap is sampled once, and edges are only collision checked when a query wants to use them
+ * (lazy PRM). Results are cached against the workspace the roadmap last saw. When boxes move, only
+ * the cached results near the boxes that appeared or disappeared are thrown away.
+ */
+public class RobotRoadmap {
+    /**
+     * Number of configurations to sample
+     */
+    private static int NUM_VERTICES = 400;
+
+    /**
+     * Number of neighbours each configuration is joined to
+     */
+    private static int NUM_NEIGHBOURS = 10;
+
+    /**
+     * Longest edge in the roadmap
+     */
+    private static double MAX_EDGE_LENGTH = 0.3;
+
+    /**
+     * Collision status of a vertex or edge that hasn't been checked against the current workspace
+     */
+    private static final byte UNKNOWN = 0;
+
+    /**
+     * Collision status of a vertex or edge that is free in the current workspace
+     */
+    private static final byte VALID = 1;
+
+    /**
+     * Collision status of a vertex or edge that collides in the current workspace
+     */
+    private static final byte INVALID = 2;
+
+    /**
+     * The sampled configurations
+     */
+    private ArrayList<Robot> vertices;
+
+    /**
+     * Collision status of each vertex
+     */
+    private byte[] vertexStatus;
+
+    /**
+     * Bounding box of each vertex (minX, minY, maxX, maxY)
+     */
+    private double[] vertexBounds;
+
+    /**
+     * The two vertices of each edge
+     */
+    private int[] edgeVertices;
+
+    /**
+     * Collision status of each edge
+     */
+    private byte[] edgeStatus;
+
+    /**
+     * Box bounding everything each edge sweeps through (minX, minY, maxX, maxY)
+     */
+    private double[] edgeBounds;
+
+    /**
+     * The edges touching each vertex
+     */
+    private int[][] vertexEdges;
+
+    /**
+     * The workspace version the statuses were last patched for
+     */
+    private Workspace knownWorkspace;
+
+    /**
+     * The modification count of knownWorkspace when the statuses were last patched
+     */
+    private int knownVersion;
+
+    /**
+     * The obstacles the statuses are cached against
+     */
+    private HashSet<Rectangle2D> knownObstacles;
+
+    /**
+     * The width of the robot
+     */
+    private double width;
+
+    /**
+     * How finely motions are checked
+     */
+    private StepSize stepSize;
+
+    /**
+     * Build a roadmap
+     *
+     * @param width the width of the robot
+     * @param staticObstacles obstacles no configuration should ever collide with
+     * @param stepSize how finely to check motions, the same as the RRTs
+     * @param random the generator used to sample configurations
+     */
+    public RobotRoadmap(double width, ObstacleGrid staticObstacles, StepSize stepSize,
+            SplittableRandom random) {
+        this.width = width;
+        this.stepSize = stepSize;
+
+        // Sample valid configurations, biased towards horizontal and vertical like RobotRRT
+        vertices = new ArrayList<>();
+
+        for (int attempts = 0; vertices.size() < NUM_VERTICES && attempts < NUM_VERTICES * 20;
+             attempts++) {
+            double newAngle;
+            double chance = random.nextDouble();
+
+            if (chance < 0.45) {
+                newAngle = 0;
+            } else if (chance < 0.9) {
+                newAngle = PI / 2;
+            } else {
+                newAngle = random.nextDouble() * 2 * PI;
+            }
+
+            Robot robot = new Robot(random.nextDouble(), random.nextDouble(), newAngle, width);
+
+            if (robot.isValid(staticObstacles)) {
+                vertices.add(robot);
+            }
+        }
+
+        vertexStatus = new byte[vertices.size()];
+        vertexBounds = new double[vertices.size() * 4];
+
+        for (int i = 0; i < vertices.size(); i++) {
+            Rectangle2D bounds = vertices.get(i).getLine().getBounds2D();
+            setBounds(vertexBounds, i, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(),
+                    bounds.getMaxY()
+            );
+        }
+
+        // Join each configuration to its nearest neighbours
+        ArrayList<Integer> edgeList = new ArrayList<>();
+        HashSet<Long> joined = new HashSet<>();
+
+        for (int i = 0; i < vertices.size(); i++) {
+            for (int j : nearestVertices(vertices.get(i), NUM_NEIGHBOURS + 1)) {
+                long key = (long) min(i, j) * vertices.size() + max(i, j);
+
+                if (i != j && joined.add(key)) {
+                    edgeList.add(i);
+                    edgeList.add(j);
+                }
+            }
+        }
+
+        int numEdges = edgeList.size() / 2;
+        edgeVertices = new int[numEdges * 2];
+        edgeStatus = new byte[numEdges];
+        edgeBounds = new double[numEdges * 4];
+
+        int[] degree = new int[vertices.size()];
+
+        for (int e = 0; e < numEdges; e++) {
+            edgeVertices[2 * e] = edgeList.get(2 * e);
+            edgeVertices[2 * e + 1] = edgeList.get(2 * e + 1);
+            degree[edgeVertices[2 * e]]++;
+            degree[edgeVertices[2 * e + 1]]++;
+
+            // The ends of the robot never move further than width / 2 from the centre line
+            Robot a = vertices.get(edgeVertices[2 * e]);
+            Robot b = vertices.get(edgeVertices[2 * e + 1]);
+            setBounds(edgeBounds, e,
+                    min(a.getX(), b.getX()) - width / 2, min(a.getY(), b.getY()) - width / 2,
+                    max(a.getX(), b.getX()) + width / 2, max(a.getY(), b.getY()) + width / 2
+            );
+        }
+
+        vertexEdges = new int[vertices.size()][];
+
+        for (int i = 0; i < vertices.size(); i++) {
+            vertexEdges[i] = new int[degree[i]];
+            degree[i] = 0;
+        }
+
+        for (int e = 0; e < numEdges; e++) {
+            int a = edgeVertices[2 * e];
+            int b = edgeVertices[2 * e + 1];
+            vertexEdges[a][degree[a]++] = e;
+            vertexEdges[b][degree[b]++] = e;
+        }
+
+        knownObstacles = new HashSet<>();
+    }
+
+    /**
+     * Find a path for the robot through a workspace. The path has the same form as an action path
+     * from a RobotRRT solution.
+     *
+     * @param workspace the workspace
+     * @param initialRobot the initial robot
+     * @param goalRobot the goal robot
+     * @param boxToPush the box the robot is about to push. The robot may only touch it at the
+     * start and end of the path.
+     *
+     * @return the robot actions from initialRobot to goalRobot, or null if no path was found
+     */
+    public synchronized ArrayList<RobotAction> findPath(Workspace workspace, Robot initialRobot,
+            Robot goalRobot, Box boxToPush) {
+        ObstacleGrid obstacles = workspace.getAllObstacleGrid();
+
+        if (!initialRobot.isValid(obstacles) || !goalRobot.isValid(obstacles)) {
+            return null;
+        }
+
+        // Try going straight there first
+        if (isMotionValid(initialRobot, goalRobot, boxToPush, obstacles)) {
+            return new ArrayList<>(Arrays.asList(new RobotAction(initialRobot, goalRobot)));
+        }
+
+        patch(workspace, obstacles);
+
+        // Join the ends to the roadmap
+        ArrayList<Integer> startVertices = joinToRoadmap(initialRobot, false, boxToPush,
+                obstacles
+        );
+        ArrayList<Integer> goalVertices = joinToRoadmap(goalRobot, true, boxToPush, obstacles);
+
+        if (startVertices.isEmpty() || goalVertices.isEmpty()) {
+            return null;
+        }
+
+        // Vertices and edges that can't be used because they touch the box being pushed
+        HashSet<Integer> blockedVertices = new HashSet<>();
+        HashSet<Integer> blockedEdges = new HashSet<>();
+
+        while (true) {
+            ArrayList<Integer> path = search(startVertices, goalVertices, goalRobot,
+                    blockedVertices, blockedEdges
+            );
+
+            if (path == null) {
+                return null;
+            }
+
+            // Check the vertices and edges along the path. The edge checks skip the box at either
+            // end, so the vertices have to be checked against it too. Stop at the first bad one
+            // and search again.
+            boolean pathValid = true;
+
+            for (int vertex : path) {
+                if (!isVertexClearOf(vertex, boxToPush)) {
+                    blockedVertices.add(vertex);
+                    pathValid = false;
+                }
+            }
+
+            for (int i = 1; i < path.size() && pathValid; i++) {
+                int edge = findEdge(path.get(i - 1), path.get(i));
+
+                if (!isEdgeValid(edge, obstacles)) {
+                    pathValid = false;
+                } else if (!isEdgeClearOf(edge, boxToPush)) {
+                    blockedEdges.add(edge);
+                    pathValid = false;
+                }
+            }
+
+            if (pathValid) {
+                ArrayList<RobotAction> actions = new ArrayList<>();
+                Robot previousRobot = initialRobot;
+
+                for (int vertex : path) {
+                    actions.add(new RobotAction(previousRobot, vertices.get(vertex)));
+                    previousRobot = vertices.get(vertex);
+                }
+
+                actions.add(new RobotAction(previousRobot, goalRobot));
+
+                return actions;
+            }
+        }
+    }
+
+    /**
+     * Bring the cached statuses up to date with the workspace. Anything near an obstacle that has
+     * appeared or disappeared since the last query is marked unknown.
+     *
+     * @param workspace the workspace
+     * @param obstacles the obstacles in the workspace
+     */
+    private void patch(Workspace workspace, ObstacleGrid obstacles) {
+        if (workspace == knownWorkspace && workspace.getVersion() == knownVersion) {
+            return;
+        }
+
+        HashSet<Rectangle2D> currentObstacles = new HashSet<>();
+
+        for (Box obstacle : obstacles.getBoxes()) {
+            currentObstacles.add((Rectangle2D) obstacle.getRect().clone());
+        }
+
+        ArrayList<Rectangle2D> changed = new ArrayList<>();
+
+        for (Rectangle2D obstacle : currentObstacles) {
+            if (!knownObstacles.contains(obstacle)) {
+                changed.add(obstacle);
+            }
+        }
+
+        for (Rectangle2D obstacle : knownObstacles) {
+            if (!currentObstacles.contains(obstacle)) {
+                changed.add(obstacle);
+            }
+        }
+
+        for (Rectangle2D obstacle : changed) {
+            for (int i = 0; i < vertexStatus.length; i++) {
+                if (overlaps(vertexBounds, i, obstacle)) {
+                    vertexStatus[i] = UNKNOWN;
+                }
+            }
+
+            for (int e = 0; e < edgeStatus.length; e++) {
+                if (overlaps(edgeBounds, e, obstacle)) {
+                    edgeStatus[e] = UNKNOWN;
+                }
+            }
+        }
+
+        knownObstacles = currentObstacles;
+        knownWorkspace = workspace;
+        knownVersion = workspace.getVersion();
+    }
+
+    /**
+     * Join a configuration to the nearest roadmap vertices it has a valid motion to. Vertices
+     * touching the box to push are left out, since the motion check allows the box at its ends.
+     *
+     * @param robot the configuration
+     * @param toRobot whether the motion is from the vertex to the robot rather than the reverse
+     * @param boxToPush the box the robot is about to push
+     * @param obstacles the obstacles in the workspace
+     *
+     * @return the vertices joined to
+     */
+    private ArrayList<Integer> joinToRoadmap(Robot robot, boolean toRobot, Box boxToPush,
+            ObstacleGrid obstacles) {
+        ArrayList<Integer> joinedVertices = new ArrayList<>();
+
+        for (int vertex : nearestVertices(robot, NUM_NEIGHBOURS)) {
+            if (!isVertexValid(vertex, obstacles) || !isVertexClearOf(vertex, boxToPush)) {
+                continue;
+            }
+
+            Robot vertexRobot = vertices.get(vertex);
+
+            if (toRobot ? isMotionValid(vertexRobot, robot, boxToPush, obstacles) :
+                        isMotionValid(robot, vertexRobot, boxToPush, obstacles)) {
+                joinedVertices.add(vertex);
+            }
+        }
+
+        return joinedVertices;
+    }
+
+    /**
+     * Find the shortest path through the roadmap with A*, skipping anything known to collide.
+     *
+     * @param startVertices vertices the robot can move to from its initial configuration
+     * @param goalVertices vertices the robot can move to its goal from
+     * @param goalRobot the goal robot
+     * @param blockedVertices vertices that can't be used for this query
+     * @param blockedEdges edges that can't be used for this query
+     *
+     * @return the vertices along the path, or null if there is none
+     */
+    private ArrayList<Integer> search(ArrayList<Integer> startVertices,
+            ArrayList<Integer> goalVertices, Robot goalRobot, HashSet<Integer> blockedVertices,
+            HashSet<Integer> blockedEdges) {
+        double[] costs = new double[vertices.size()];
+        int[] previous = new int[vertices.size()];
+        boolean[] isGoal = new boolean[vertices.size()];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        Arrays.fill(previous, -1);
+
+        for (int vertex : goalVertices) {
+            isGoal[vertex] = true;
+        }
+
+        // Queue entries are (estimated total cost, vertex)
+        PriorityQueue<double[]> queue = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+
+        for (int vertex : startVertices) {
+            costs[vertex] = 0;
+            queue.add(new double[] {heuristic(vertex, goalRobot), vertex});
+        }
+
+        while (!queue.isEmpty()) {
+            double[] entry = queue.poll();
+            int vertex = (int) entry[1];
+
+            // Skip stale entries
+            if (entry[0] > costs[vertex] + heuristic(vertex, goalRobot)) {
+                continue;
+            }
+
+            if (isGoal[vertex]) {
+                ArrayList<Integer> path = new ArrayList<>();
+
+                for (int current = vertex; current != -1; current = previous[current]) {
+                    path.add(current);
+                }
+
+                Collections.reverse(path);
+
+                return path;
+            }
+
+            for (int edge : vertexEdges[vertex]) {
+                if (edgeStatus[edge] == INVALID || blockedEdges.contains(edge)) {
+                    continue;
+                }
+
+                int other = edgeVertices[2 * edge] == vertex ?
+                                    edgeVertices[2 * edge + 1] : edgeVertices[2 * edge];
+
+                if (vertexStatus[other] == INVALID || blockedVertices.contains(other)) {
+                    continue;
+                }
+
+                double cost = costs[vertex] +
+                                      vertices.get(vertex).distanceToOtherRobot(vertices.get(other));
+
+                if (cost < costs[other]) {
+                    costs[other] = cost;
+                    previous[other] = vertex;
+                    queue.add(new double[] {cost + heuristic(other, goalRobot), other});
+                }
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Estimate the cost from a vertex to the goal. Never more than the real cost, since the
+     * distance between robots obeys the triangle inequality.
+     *
+     * @param vertex the vertex
+     * @param goalRobot the goal robot
+     *
+     * @return the estimated cost
+     */
+    private double heuristic(int vertex, Robot goalRobot) {
+        return vertices.get(vertex).distanceToOtherRobot(goalRobot);
+    }
+
+    /**
+     * Find the edge between two vertices
+     *
+     * @param a the first vertex
+     * @param b the second vertex
+     *
+     * @return the edge, or -1 if they aren't joined
+     */
+    private int findEdge(int a, int b) {
+        for (int edge : vertexEdges[a]) {
+            if (edgeVertices[2 * edge] == b || edgeVertices[2 * edge + 1] == b) {
+                return edge;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Check if a vertex is free in the workspace, using the cached status if there is one
+     *
+     * @param vertex the vertex
+     * @param obstacles the obstacles in the workspace
+     *
+     * @return whether the vertex is valid
+     */
+    private boolean isVertexValid(int vertex, ObstacleGrid obstacles) {
+        if (vertexStatus[vertex] == UNKNOWN) {
+            vertexStatus[vertex] = vertices.get(vertex).isValid(obstacles) ? VALID : INVALID;
+        }
+
+        return vertexStatus[vertex] == VALID;
+    }
+
+    /**
+     * Check if an edge is free in the workspace, using the cached status if there is one
+     *
+     * @param edge the edge
+     * @param obstacles the obstacles in the workspace
+     *
+     * @return whether the edge is valid
+     */
+    private boolean isEdgeValid(int edge, ObstacleGrid obstacles) {
+        if (edgeStatus[edge] == UNKNOWN) {
+            edgeStatus[edge] = isMotionValid(vertices.get(edgeVertices[2 * edge]),
+                    vertices.get(edgeVertices[2 * edge + 1]), null, obstacles
+            ) ? VALID : INVALID;
+        }
+
+        return edgeStatus[edge] == VALID;
+    }
+
+    /**
+     * Check that a vertex doesn't touch a box
+     *
+     * @param vertex the vertex
+     * @param box the box, or null
+     *
+     * @return whether the vertex is clear of the box
+     */
+    private boolean isVertexClearOf(int vertex, Box box) {
+        if (box == null || !overlaps(vertexBounds, vertex, box.getRect())) {
+            return true;
+        }
+
+        Line2D line = vertices.get(vertex).getLine();
+
+        return !box.intersectsLine(line.getX1(), line.getY1(), line.getX2(), line.getY2());
+    }
+
+    /**
+     * Check that an edge never touches a box. Only the box's neighbourhood needs checking.
+     *
+     * @param edge the edge
+     * @param box the box
+     *
+     * @return whether the edge is clear of the box
+     */
+    private boolean isEdgeClearOf(int edge, Box box) {
+        if (!overlaps(edgeBounds, edge, box.getRect())) {
+            return true;
+        }
+
+        return isMotionValid(vertices.get(edgeVertices[2 * edge]),
+                vertices.get(edgeVertices[2 * edge + 1]), null,
+                new ObstacleGrid(Arrays.asList(box))
+        );
+    }
+
+    /**
+     * Check a straight motion between two configurations, the same way RobotRRT checks its edges
+     *
+     * @param from the initial robot
+     * @param to the final robot
+     * @param boxToPush the box the robot may only touch at either end of the motion, or null
+     * @param obstacles the obstacles to avoid
+     *
+     * @return whether the motion is valid
+     */
+    private boolean isMotionValid(Robot from, Robot to, Box boxToPush, ObstacleGrid obstacles) {
+        RobotAction action = new RobotAction(from, to);
+
+        return new RobotState(from).tryAction(action.getDx(), action.getDy(), action.getDtheta(),
+                boxToPush, obstacles, stepSize
+        ) != null;
+    }
+
+    /**
+     * Find the vertices nearest to a configuration
+     *
+     * @param robot the configuration
+     * @param count the number of vertices to find
+     *
+     * @return up to count vertices within MAX_EDGE_LENGTH, nearest first
+     */
+    private ArrayList<Integer> nearestVertices(Robot robot, int count) {
+        ArrayList<double[]> candidates = new ArrayList<>();
+
+        for (int i = 0; i < vertices.size(); i++) {
+            double distance = robot.distanceToOtherRobot(vertices.get(i));
+
+            if (distance <= MAX_EDGE_LENGTH) {
+                candidates.add(new double[] {distance, i});
+            }
+        }
+
+        candidates.sort((a, b) -> Double.compare(a[0], b[0]));
+
+        ArrayList<Integer> nearest = new ArrayList<>();
+
+        for (int i = 0; i < min(count, candidates.size()); i++) {
+            nearest.add((int) candidates.get(i)[1]);
+        }
+
+        return nearest;
+    }
+
+    /**
+     * Store a bounding box in an array of bounding boxes
+     *
+     * @param bounds the array of bounding boxes
+     * @param index the index of the bounding box
+     * @param minX the minimum x
+     * @param minY the minimum y
+     * @param maxX the maximum x
+     * @param maxY the maximum y
+     */
+    private static void setBounds(double[] bounds, int index, double minX, double minY,
+            double maxX, double maxY) {
+        bounds[4 * index] = minX;
+        bounds[4 * index + 1] = minY;
+        bounds[4 * index + 2] = maxX;
+        bounds[4 * index + 3] = maxY;
+    }
+
+    /**
+     * Check if a bounding box touches a rectangle. Touching edges count.
+     *
+     * @param bounds the array of bounding boxes
+     * @param index the index of the bounding box
+     * @param rect the rectangle
+     *
+     * @return whether they touch
+     */
+    private static boolean overlaps(double[] bounds, int index, Rectangle2D rect) {
+        return bounds[4 * index] <= rect.getMaxX() && rect.getMinX() <= bounds[4 * index + 2] &&
+                       bounds[4 * index + 1] <= rect.getMaxY() &&
+                       rect.getMinY() <= bounds[4 * index + 3];
+    }
+}
@@ -1,7 +1,6 @@
 package solution;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 
 import static java.lang.Math.*;
 import static solution.Utility.angleBetween;
@@ -10,7 +9,7 @@ import static solution.Utility.smallestAngleBetween;
 /**
  * A state object, containing the location and orientation of the robot.
  */
-public class RobotState extends State {
+public class RobotState extends State<RobotState> {
     /**
      * The robot
      */
@@ -33,17 +32,47 @@ public class RobotState extends State {
      * @param boxToPush the box the robot is pushing
      * @param dtheta change in theta
      * @param obstacles the obstacles to avoid
+     * @param stepSize how finely to check the motion
      *
      * @return a new node containing the new state and the action to get to this state
      *
      * @throws InvalidStateException if the new state is invalid
      */
     public TreeNode<RobotState, RobotAction> action(double dx, double dy, double dtheta,
-            Box boxToPush, ArrayList<Box> obstacles) throws InvalidStateException {
+            Box boxToPush, ArrayList<Box> obstacles, StepSize stepSize)
+            throws InvalidStateException {
+        TreeNode<RobotState, RobotAction> newNode = tryAction(dx, dy, dtheta, boxToPush, obstacles,
+                stepSize
+        );
+
+        if (newNode == null) {
+            throw new InvalidStateException();
+        }
+
+        return newNode;
+    }
+
+    /**
+     * Moving from one state to another. Same as action, but reports an invalid move by returning
+     * null instead of throwing. Every obstacle in the list is checked at every step, so for more
+     * than a few obstacles, or many motions against the same obstacles, use the ObstacleGrid
+     * version.
+     *
+     * @param dx x distance to move robot by
+     * @param dy y distance to move robot by
+     * @param boxToPush the box the robot is pushing
+     * @param dtheta change in theta
+     * @param obstacles the obstacles to avoid
+     * @param stepSize how finely to check the motion
+     *
+     * @return a new node containing the new state and the action to get to this state, or null if
+     * the new state is invalid
+     */
+    public TreeNode<RobotState, RobotAction> tryAction(double dx, double dy, double dtheta,
+            Box boxToPush, ArrayList<Box> obstacles, StepSize stepSize) {
         RobotState newState = clone();
 
-        double distance = distanceDelta(dx, dy, dtheta);
-        double numSteps = ceil(distance / 0.0005);
+        double numSteps = stepSize.count(robot.getWidth(), dx, dy, dtheta);
 
         // Step along the line, checking the robot configuration at each step
         for (double i = 1; i <= numSteps; i++) {
@@ -53,9 +82,11 @@ public class RobotState extends State {
 
             // Check if this configuration is valid
             if (i == 1 || i == numSteps) {
-                newState.validate(obstacles);
-            } else {
-                newState.validate(obstacles, boxToPush);
+                if (!newState.isValid(obstacles)) {
+                    return null;
+                }
+            } else if (!newState.isValid(obstacles, boxToPush)) {
+                return null;
             }
         }
 
@@ -63,6 +94,79 @@ public class RobotState extends State {
         return new TreeNode<>(newState, new RobotAction(robot, newState.robot));
     }
 
+    /**
+     * Moving from one state to another, checking against an obstacle index. Reports an invalid
+     * move by returning null.
+     *
+     * @param dx x distance to move robot by
+     * @param dy y distance to move robot by
+     * @param boxToPush the box the robot is pushing
+     * @param dtheta change in theta
+     * @param obstacles the obstacles to avoid
+     * @param stepSize how finely to check the motion
+     *
+     * @return a new node containing the new state and the action to get to this state, or null if
+     * the new state is invalid
+     */
+    public TreeNode<RobotState, RobotAction> tryAction(double dx, double dy, double dtheta,
+            Box boxToPush, ObstacleGrid obstacles, StepSize stepSize) {
+        RobotState newState = tryMove(dx, dy, dtheta, boxToPush, obstacles, stepSize);
+
+        if (newState == null) {
+            return null;
+        }
+
+        // Create and return a new node with this new state
+        return new TreeNode<>(newState, new RobotAction(robot, newState.robot));
+    }
+
+    /**
+     * Moving from one state to another, checking against an obstacle index. Same as tryAction,
+     * but only creates the new state, for trees that rebuild their actions from the states.
+     *
+     * @param dx x distance to move robot by
+     * @param dy y distance to move robot by
+     * @param boxToPush the box the robot is pushing
+     * @param dtheta change in theta
+     * @param obstacles the obstacles to avoid
+     * @param stepSize how finely to check the motion
+     *
+     * @return the new state, or null if the new state is invalid
+     */
+    public RobotState tryMove(double dx, double dy, double dtheta, Box boxToPush,
+            ObstacleGrid obstacles, StepSize stepSize) {
+        RobotState newState = clone();
+
+        double numSteps = stepSize.count(robot.getWidth(), dx, dy, dtheta);
+
+        // Skip the steps if the whole motion is clear. Otherwise step along it, since the
+        // continuous check errs on the side of colliding.
+        if (numSteps > 0 &&
+                    ContinuousCollision.isMotionClear(robot, dx, dy, dtheta, boxToPush, obstacles)) {
+            newState.robot.move(dx, dy, dtheta);
+
+            return newState;
+        }
+
+        // Step along the line, checking the robot configuration at each step
+        for (double i = 1; i <= numSteps; i++) {
+            // Clone this state and move the robot along a line
+            newState = clone();
+            newState.robot.move(i / numSteps * dx, i / numSteps * dy, i / numSteps * dtheta);
+
+            // Check if this configuration is valid
+            if (i == 1 || i == numSteps) {
+                if (!newState.isValid(obstacles)) {
+                    return null;
+                }
+            } else if (!newState.isValid(obstacles, boxToPush)) {
+                return null;
+            }
+        }
+
+        return newState;
+    }
+
     /**
      * Check if the state is valid. The state is valid if the robot doesn't collide with any of the
      * static obstacles and is inside the workspace.
@@ -77,6 +181,17 @@ public class RobotState extends State {
         return robot.isValid(obstacles);
     }
 
+    /**
+     * Check if the state is valid against an obstacle index
+     *
+     * @param obstacles the obstacles to avoid
+     *
+     * @return whether the state is valid or not
+     */
+    public boolean isValid(ObstacleGrid obstacles) {
+        return robot.isValid(obstacles);
+    }
+
     /**
      * Clone the state
      *
@@ -98,13 +213,9 @@ public class RobotState extends State {
      * @return the distance
      */
     private double distanceDelta(double dx, double dy, double dtheta) {
-        // Clone this state's robot
-        Robot newRobot = robot.clone();
-
-        // move it, then calculate the distance to the old position
-        newRobot.move(dx, dy, dtheta);
-
-        return robot.distanceToOtherRobot(newRobot);
+        return Robot.distanceMoved(robot.getX(), robot.getY(), robot.getTheta(), robot.getWidth(),
+                dx, dy, dtheta
+        );
     }
 
     /**
@@ -113,21 +224,36 @@ public class RobotState extends State {
      *
      * @param other the other state to calculate the distance to
      *
-     * @return the distance between states if other is a RobotState. -1 otherwise.
+     * @return the distance between states
      */
     @Override
-    public double distanceTo(State other) {
-        if (other instanceof RobotState) {
-            RobotState robotState = (RobotState) other;
-
-            return distanceDelta(
-                    robot.getPos().getX() - robotState.getRobot().getPos().getX(),
-                    robot.getPos().getY() - robotState.getRobot().getPos().getY(),
-                    robot.getTheta() - robotState.getRobot().getTheta()
-            );
-        } else {
-            return -1;
-        }
+    public double distanceTo(RobotState other) {
+        return distanceDelta(
+                robot.getPos().getX() - other.getRobot().getPos().getX(),
+                robot.getPos().getY() - other.getRobot().getPos().getY(),
+                robot.getTheta() - other.getRobot().getTheta()
+        );
+    }
+
+    /**
+     * Get the x value of the index point. This is the centre of the robot, since the distance
+     * between states is never less than the distance the centre moves.
+     *
+     * @return the centre x position
+     */
+    @Override
+    public double getIndexX() {
+        return robot.getX();
+    }
+
+    /**
+     * Get the y value of the index point. This is the centre of the robot.
+     *
+     * @return the centre y position
+     */
+    @Override
+    public double getIndexY() {
+        return robot.getY();
     }
 
     /**
@@ -138,37 +264,28 @@ public class RobotState extends State {
      * @param delta the distance to move along the line between the two states
      *
      * @return the new state
-     *
-     * @throws InvalidStateException if other is not a RobotState
      */
     @Override
-    public RobotState stepTowards(State other, double delta) throws InvalidStateException {
-        // Make sure other is a RobotState
-        if (!(other instanceof RobotState)) {
-            throw new InvalidStateException();
-        }
-
-        RobotState robotState = (RobotState) other;
-
+    public RobotState tryStepTowards(RobotState other, double delta) {
         // Distance to the other state
         double distance = distanceTo(other);
 
         // No need to do anything
         if (distance <= delta) {
-            return robotState;
+            return other;
         }
 
         RobotState newState = clone();
 
         // Move along the line between this state and other by amount delta
-        double dx = robotState.getRobot().getX() - robot.getX();
-        double dy = robotState.getRobot().getY() - robot.getY();
+        double dx = other.getRobot().getX() - robot.getX();
+        double dy = other.getRobot().getY() - robot.getY();
 
-        double smallestAngle = smallestAngleBetween(robotState.getRobot().getTheta(),
+        double smallestAngle = smallestAngleBetween(other.getRobot().getTheta(),
                 robot.getTheta()
         );
 
-        double dtheta = angleBetween(robot.getTheta(), robotState.getRobot().getTheta()) < PI ?
+        double dtheta = angleBetween(robot.getTheta(), other.getRobot().getTheta()) < PI ?
                                 smallestAngle : -smallestAngle;
 
         Robot newRobot = new Robot(
@@ -205,12 +322,24 @@ public class RobotState extends State {
      * Whether the state is valid or not given a box to push
      *
      * @param obstacles the obstacles to avoid
-     * @param boxPushing the box to push
+     * @param boxPushing the box to push, or null if there isn't one
+     *
+     * @return whether the state is valid or not
+     */
+    public boolean isValid(ArrayList<Box> obstacles, Box boxPushing) {
+        return isValid(obstacles) && (boxPushing == null || !robot.intersects(boxPushing));
+    }
+
+    /**
+     * Whether the state is valid or not given a box to push, checking against an obstacle index
+     *
+     * @param obstacles the obstacles to avoid
+     * @param boxPushing the box to push, or null if there isn't one
      *
      * @return whether the state is valid or not
      */
-    private boolean isValid(ArrayList<Box> obstacles, Box boxPushing) {
-        return isValid(obstacles) && robot.isValid(new ArrayList<>(Arrays.asList(boxPushing)));
+    public boolean isValid(ObstacleGrid obstacles, Box boxPushing) {
+        return isValid(obstacles) && (boxPushing == null || !robot.intersects(boxPushing));
     }
 
     /**
@@ -0,0 +1,118 @@
+package solution;
+
+/**
+ * Stores a robot state as its centre and angle. Every robot in a tree has the same width.
+ */
+public class RobotStateCodec implements StateCodec<RobotState, RobotAction> {
+    /**
+     * The width of the robot
+     */
+    private double width;
+
+    /**
+     * Construct a codec for robots of a width
+     *
+     * @param width the width of the robot
+     */
+    public RobotStateCodec(double width) {
+        this.width = width;
+    }
+
+    /**
+     * Get the number of coordinates stored per state
+     *
+     * @return 3: x, y and theta
+     */
+    @Override
+    public int getDimensions() {
+        return 3;
+    }
+
+    /**
+     * Write a state's coordinates into an array
+     *
+     * @param state the state to write
+     * @param coordinates the array to write into
+     * @param offset the index to start writing at
+     */
+    @Override
+    public void encode(RobotState state, double[] coordinates, int offset) {
+        coordinates[offset] = state.getRobot().getX();
+        coordinates[offset + 1] = state.getRobot().getY();
+        coordinates[offset + 2] = state.getRobot().getTheta();
+    }
+
+    /**
+     * Read a state back from its coordinates
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     *
+     * @return a new state
+     */
+    @Override
+    public RobotState decode(double[] coordinates, int offset) {
+        return new RobotState(new Robot(coordinates[offset], coordinates[offset + 1],
+                coordinates[offset + 2], width
+        ));
+    }
+
+    /**
+     * Create the action that moves a parent state to a child state
+     *
+     * @param parent the parent state
+     * @param child the child state
+     *
+     * @return the action
+     */
+    @Override
+    public RobotAction action(RobotState parent, RobotState child) {
+        return new RobotAction(parent.getRobot(), child.getRobot());
+    }
+
+    /**
+     * Compute the distance from a state stored as coordinates to another state
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     * @param other the other state to compute the distance to
+     *
+     * @return the distance between the states
+     */
+    @Override
+    public double distance(double[] coordinates, int offset, RobotState other) {
+        double x = coordinates[offset];
+        double y = coordinates[offset + 1];
+        double theta = coordinates[offset + 2];
+
+        return Robot.distanceMoved(x, y, theta, width, x - other.getRobot().getX(),
+                y - other.getRobot().getY(), theta - other.getRobot().getTheta()
+        );
+    }
+
+    /**
+     * Get the x value of the index point, the centre of the robot
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     *
+     * @return the centre x position
+     */
+    @Override
+    public double getIndexX(double[] coordinates, int offset) {
+        return coordinates[offset];
+    }
+
+    /**
+     * Get the y value of the index point, the centre of the robot
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     *
+     * @return the centre y position
+     */
+    @Override
+    public double getIndexY(double[] coordinates, int offset) {
+        return coordinates[offset + 1];
+    }
+}
@@ -9,6 +9,20 @@ import java.awt.BasicStroke;
  * A visualiser for a robot path
  */
 public class RobotVisualiser extends Visualiser<RobotState, RobotAction> {
+    /**
+     * The context whose workspace is drawn
+     */
+    private PlanningContext context;
+
+    /**
+     * Construct a visualiser
+     *
+     * @param context the context whose workspace is drawn
+     */
+    public RobotVisualiser(PlanningContext context) {
+        this.context = context;
+    }
+
     /**
      * Draw a tree node. Helper function to begin recursion
      *
@@ -19,7 +33,7 @@ public class RobotVisualiser extends Visualiser<RobotState, RobotAction> {
     protected void paintTreeNode(TreeNode<RobotState, RobotAction> node, Graphics2D g2) {
         // Draw all the static obstacles
         g2.setColor(Color.BLACK);
-        for (Box obstacle : Workspace.getInstance().getStaticObstacles()) {
+        for (Box obstacle : context.getWorkspace().getStaticObstacles()) {
             Shape shape = transform.createTransformedShape(obstacle.getRect());
             g2.fill(shape);
         }
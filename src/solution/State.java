@@ -2,7 +2,13 @@ package solution;
 
 import java.util.ArrayList;
 
-public abstract class State {
+/**
+ * A state an RRT searches through
+ *
+ * @param <T> the state class itself, so states are only compared with and stepped towards states
+ * of the same class
+ */
+public abstract class State<T extends State<T>> {
     /**
      * Check if the state is valid.
      *
@@ -30,7 +36,33 @@ public abstract class State {
      *
      * @return the distance between the states
      */
-    public abstract double distanceTo(State other);
+    public abstract double distanceTo(T other);
+
+    /**
+     * Get the x value of the point used to index this state spatially. The straight line distance
+     * between the index points of two states must never be more than distanceTo between them.
+     *
+     * @return the index point x value
+     */
+    public abstract double getIndexX();
+
+    /**
+     * Get the y value of the point used to index this state spatially
+     *
+     * @return the index point y value
+     */
+    public abstract double getIndexY();
+
+    /**
+     * Create a new state that is at most delta distance along the line between this state and a new
+     * one.
+     *
+     * @param other the other state
+     * @param delta the distance to move along the line between the two states
+     *
+     * @return the new state, or null if it can't be created
+     */
+    public abstract T tryStepTowards(T other, double delta);
 
     /**
      * Create a new state that is at most delta distance along the line between this state and a new
@@ -41,7 +73,15 @@ public abstract class State {
      *
      * @return the new state
      *
-     * @throws InvalidStateException if other does not conform to the subclass type
+     * @throws InvalidStateException if the new state can't be created
      */
-    public abstract State stepTowards(State other, double delta) throws InvalidStateException;
+    public T stepTowards(T other, double delta) throws InvalidStateException {
+        T newState = tryStepTowards(other, delta);
+
+        if (newState == null) {
+            throw new InvalidStateException();
+        }
+
+        return newState;
+    }
 }
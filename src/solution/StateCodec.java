@@ -0,0 +1,80 @@
+package solution;
+
+/**
+ * Converts the states of a tree to and from primitive coordinates, so a tree can be stored as
+ * arrays (see CompactTree). Everything else about a node, including the action that reaches it, is
+ * rebuilt from the coordinates. Distances and index points are read straight from the
+ * coordinates, so searching the tree doesn't create any states.
+ *
+ * @param <T> the state class
+ * @param <U> the action class
+ */
+public interface StateCodec<T extends State<T>, U> {
+    /**
+     * Get the number of coordinates stored per state
+     *
+     * @return the number of coordinates
+     */
+    int getDimensions();
+
+    /**
+     * Write a state's coordinates into an array
+     *
+     * @param state the state to write
+     * @param coordinates the array to write into
+     * @param offset the index to start writing at
+     */
+    void encode(T state, double[] coordinates, int offset);
+
+    /**
+     * Read a state back from its coordinates
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     *
+     * @return a new state
+     */
+    T decode(double[] coordinates, int offset);
+
+    /**
+     * Create the action that moves a parent state to a child state
+     *
+     * @param parent the parent state
+     * @param child the child state
+     *
+     * @return the action
+     */
+    U action(T parent, T child);
+
+    /**
+     * Compute the distance from a state stored as coordinates to another state. Must give exactly
+     * the same result as decoding the state and calling distanceTo.
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     * @param other the other state to compute the distance to
+     *
+     * @return the distance between the states
+     */
+    double distance(double[] coordinates, int offset, T other);
+
+    /**
+     * Get the x value of the index point of a state stored as coordinates (see State.getIndexX)
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     *
+     * @return the index point x value
+     */
+    double getIndexX(double[] coordinates, int offset);
+
+    /**
+     * Get the y value of the index point of a state stored as coordinates (see State.getIndexY)
+     *
+     * @param coordinates the array to read from
+     * @param offset the index to start reading at
+     *
+     * @return the index point y value
+     */
+    double getIndexY(double[] coordinates, int offset);
+}
@@ -0,0 +1,65 @@
+package solution;
+
+import tester.Tester;
+
+import static java.lang.Math.abs;
+import static java.lang.Math.ceil;
+import static java.lang.Math.sqrt;
+
+/**
+ * How finely robot motions are cut into primitive steps. The planner checks a motion at the same
+ * steps the outputter writes, so every written configuration has been checked. Each
+ * PlanningContext has its own step size.
+ */
+public class StepSize {
+    /**
+     * Default fraction of the tester's largest step that is kept back
+     */
+    public static final double DEFAULT_MARGIN = 0.05;
+
+    /**
+     * Fraction of the tester's largest step that is kept back, to allow for rounding
+     */
+    private double margin;
+
+    /**
+     * Construct a step size
+     *
+     * @param margin the fraction of the tester's largest step that is kept back, at least 0 and
+     * less than 1
+     */
+    public StepSize(double margin) {
+        if (margin < 0 || margin >= 1) {
+            throw new IllegalArgumentException("Invalid step margin: " + margin);
+        }
+
+        this.margin = margin;
+    }
+
+    /**
+     * Get the largest distance either end of the robot moves in one step
+     *
+     * @return the distance
+     */
+    public double getMaxStep() {
+        return Tester.MAX_BASE_STEP * (1 - margin);
+    }
+
+    /**
+     * Get the number of steps to cut a motion into. The robot turns about its middle while it
+     * moves, so neither end moves further in a step than the step's share of the translation plus
+     * the arc of the turn.
+     *
+     * @param width the width of the robot
+     * @param dx change in x
+     * @param dy change in y
+     * @param dtheta change in theta
+     *
+     * @return the number of steps
+     */
+    public int count(double width, double dx, double dy, double dtheta) {
+        double endDistance = sqrt(dx * dx + dy * dy) + width / 2 * abs(dtheta);
+
+        return (int) ceil(endDistance / getMaxStep());
+    }
+}
@@ -11,7 +11,7 @@ import java.awt.geom.AffineTransform;
  * @param <T> the class of state
  * @param <U> the class of action
  */
-public abstract class Visualiser<T extends State, U> extends JComponent {
+public abstract class Visualiser<T extends State<T>, U> extends JComponent {
     /**
      * The tree
      */
@@ -1,32 +1,34 @@
 package solution;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 
 /**
- * A singleton class to represent workspace information. This is the static obstacles, moveable
- * obstacles and goal boxes.
+ * A class to represent workspace information. This is the static obstacles, moveable obstacles and
+ * goal boxes. The versions of the workspace for a solve are kept by its PlanningContext.
+ *
+ * Versions share their obstacle collections, so saving a version only costs as much as the changes
+ * made to it. Boxes in the workspace are never moved in place, so they are shared too.
  */
 public class Workspace {
     /**
      * The static obstacles in the workspace
      */
-    private ArrayList<Box> staticObstacles;
+    private PersistentList<Box> staticObstacles;
 
     /**
      * The moveable obstacles in the workspace
      */
-    private ArrayList<MoveableBox> moveableObstacles;
+    private PersistentList<MoveableBox> moveableObstacles;
 
     /**
      * The goal boxes in the workspace
      */
-    private ArrayList<MoveableBox> goalBoxes;
+    private PersistentList<MoveableBox> goalBoxes;
 
     /**
      * The boxes needing to be moved
      */
-    private ArrayList<MoveableBox> boxesNeedingMoving;
+    private PersistentList<MoveableBox> boxesNeedingMoving;
 
     /**
      * The width of the robot
@@ -34,78 +36,50 @@ public class Workspace {
     private double robotWidth;
 
     /**
-     * Versions of the workspace
+     * Number of modifications made to this version
      */
-    private static ArrayList<Workspace> storedVersions = new ArrayList<>(
-            Arrays.asList(new Workspace())
-    );
+    private int version;
 
     /**
-     * Private constructor
+     * Index over the static obstacles
      */
-    private Workspace() {
-        staticObstacles = new ArrayList<>();
-        moveableObstacles = new ArrayList<>();
-        goalBoxes = new ArrayList<>();
-        boxesNeedingMoving = new ArrayList<>();
-    }
-
-    /**
-     * Private constructor with variables
-     *
-     * @param staticObstacles the static obstacles
-     * @param moveableObstacles the movable obstacles
-     * @param goalBoxes the goal boxes
-     * @param boxesNeedingMoving the boxes needing to be moved
-     * @param robotWidth the robot width
-     */
-    private Workspace(ArrayList<Box> staticObstacles, ArrayList<MoveableBox> moveableObstacles,
-            ArrayList<MoveableBox> goalBoxes, ArrayList<MoveableBox> boxesNeedingMoving,
-            double robotWidth) {
-        this.staticObstacles = staticObstacles;
-        this.moveableObstacles = moveableObstacles;
-        this.goalBoxes = goalBoxes;
-        this.boxesNeedingMoving = boxesNeedingMoving;
-        this.robotWidth = robotWidth;
-    }
+    private ObstacleGrid staticObstacleGrid;
 
     /**
-     * Get the singleton instance. Gets the most recent version
-     *
-     * @return the singleton instance
+     * Index over the obstacles returned by getCurrentStillObstacles
      */
-    public static Workspace getInstance() {
-        return storedVersions.get(storedVersions.size() - 1);
-    }
+    private ObstacleGrid currentStillObstacleGrid;
 
     /**
-     * Create a new version that's a copy of this one
+     * Index over the obstacles returned by getAllObstacles
      */
-    public static void save() {
-        storedVersions.add(getInstance().clone());
-    }
+    private ObstacleGrid allObstacleGrid;
 
     /**
-     * Revert to the last version
+     * Construct an empty workspace
      */
-    public static void undo() {
-        // Remove the top version from the list, ensure there's always at least one version
-        // (the original)
-        if (storedVersions.size() > 1) {
-            storedVersions.remove(storedVersions.size() - 1);
-        }
+    public Workspace() {
+        staticObstacles = new PersistentList<>();
+        moveableObstacles = new PersistentList<>();
+        goalBoxes = new PersistentList<>();
+        boxesNeedingMoving = new PersistentList<>();
+        rebuildObstacleGrids();
     }
 
     /**
-     * Set the last version to this, and remove this version
+     * Private constructor sharing another version's obstacles
+     *
+     * @param other the version to share with
      */
-    public static void overwriteLastAndRemove() {
-        if (storedVersions.size() > 1) {
-            Workspace version = getInstance().clone();
-            undo();
-            undo();
-            storedVersions.add(version);
-        }
+    private Workspace(Workspace other) {
+        staticObstacles = other.staticObstacles;
+        moveableObstacles = other.moveableObstacles;
+        goalBoxes = other.goalBoxes;
+        boxesNeedingMoving = other.boxesNeedingMoving;
+        robotWidth = other.robotWidth;
+        staticObstacleGrid = other.staticObstacleGrid.copy();
+        currentStillObstacleGrid = other.currentStillObstacleGrid.copy();
+        allObstacleGrid = other.allObstacleGrid.copy();
     }
 
     /**
@@ -114,7 +88,9 @@ public class Workspace {
      * @param goalBoxes the goal boxes
      */
     public void setGoalBoxes(ArrayList<MoveableBox> goalBoxes) {
-        this.goalBoxes = new ArrayList<>(goalBoxes);
+        version++;
+        this.goalBoxes = new PersistentList<>(goalBoxes);
+        rebuildObstacleGrids();
     }
 
     /**
@@ -123,7 +99,9 @@ public class Workspace {
      * @param moveableObstacles the moveable obstacles
      */
     public void setMoveableObstacles(ArrayList<MoveableBox> moveableObstacles) {
-        this.moveableObstacles = new ArrayList<>(moveableObstacles);
+        version++;
+        this.moveableObstacles = new PersistentList<>(moveableObstacles);
+        rebuildObstacleGrids();
     }
 
     /**
@@ -132,7 +110,9 @@ public class Workspace {
      * @param staticObstacles the static obstacles
      */
     public void setStaticObstacles(ArrayList<Box> staticObstacles) {
-        this.staticObstacles = new ArrayList<>(staticObstacles);
+        version++;
+        this.staticObstacles = new PersistentList<>(staticObstacles);
+        rebuildObstacleGrids();
     }
 
     /**
@@ -141,7 +121,7 @@ public class Workspace {
      * @return the static obstacles
      */
     public ArrayList<Box> getStaticObstacles() {
-        return new ArrayList<>(staticObstacles);
+        return staticObstacles.toArrayList();
     }
 
     /**
@@ -151,9 +131,9 @@ public class Workspace {
      */
     public ArrayList<Box> getCurrentStillObstacles() {
         ArrayList<Box> obstacleList = new ArrayList<>();
-        obstacleList.addAll(staticObstacles);
-        obstacleList.addAll(goalBoxes);
-        obstacleList.addAll(boxesNeedingMoving);
+        obstacleList.addAll(staticObstacles.toArrayList());
+        obstacleList.addAll(goalBoxes.toArrayList());
+        obstacleList.addAll(boxesNeedingMoving.toArrayList());
 
         return obstacleList;
     }
@@ -165,20 +145,56 @@ public class Workspace {
      */
     public ArrayList<Box> getAllObstacles() {
         ArrayList<Box> obstacleList = new ArrayList<>();
-        obstacleList.addAll(staticObstacles);
-        obstacleList.addAll(moveableObstacles);
-        obstacleList.addAll(boxesNeedingMoving);
-        obstacleList.addAll(goalBoxes);
+        obstacleList.addAll(staticObstacles.toArrayList());
+        obstacleList.addAll(moveableObstacles.toArrayList());
+        obstacleList.addAll(boxesNeedingMoving.toArrayList());
+        obstacleList.addAll(goalBoxes.toArrayList());
         return obstacleList;
     }
 
+    /**
+     * Get an index over the static obstacles
+     *
+     * @return a copy of the index
+     */
+    public ObstacleGrid getStaticObstacleGrid() {
+        return staticObstacleGrid.copy();
+    }
+
+    /**
+     * Get an index over the obstacles that have not yet been moved or are in their final positions
+     *
+     * @return a copy of the index
+     */
+    public ObstacleGrid getCurrentStillObstacleGrid() {
+        return currentStillObstacleGrid.copy();
+    }
+
+    /**
+     * Get an index over all the boxes in the workspace
+     *
+     * @return a copy of the index
+     */
+    public ObstacleGrid getAllObstacleGrid() {
+        return allObstacleGrid.copy();
+    }
+
+    /**
+     * Rebuild the obstacle indices from the obstacle lists
+     */
+    private void rebuildObstacleGrids() {
+        staticObstacleGrid = new ObstacleGrid(getStaticObstacles());
+        currentStillObstacleGrid = new ObstacleGrid(getCurrentStillObstacles());
+        allObstacleGrid = new ObstacleGrid(getAllObstacles());
+    }
+
     /**
      * Get the goal boxes
      *
      * @return the goal boxes
      */
     public ArrayList<MoveableBox> getGoalBoxes() {
-        return new ArrayList<>(goalBoxes);
+        return goalBoxes.toArrayList();
     }
 
     /**
@@ -187,7 +203,7 @@ public class Workspace {
      * @return the moveable obstacles
      */
     public ArrayList<MoveableBox> getMoveableObstacles() {
-        return new ArrayList<>(moveableObstacles);
+        return moveableObstacles.toArrayList();
     }
 
     /**
@@ -197,9 +213,13 @@ public class Workspace {
      * @param box the box needing to be moved
      */
     public void markBoxNeedsMoving(MoveableBox box) {
+        version++;
         if (moveableObstacles.contains(box)) {
-            moveableObstacles.remove(box);
-            boxesNeedingMoving.add(box);
+            moveableObstacles = moveableObstacles.remove(box);
+            boxesNeedingMoving = boxesNeedingMoving.add(box);
+
+            // Still in the workspace, so allObstacleGrid already has it, but no longer moveable
+            currentStillObstacleGrid.add(box);
         }
     }
 
@@ -209,8 +229,11 @@ public class Workspace {
      * @param box the box to push
      */
     public void pushBox(MoveableBox box) {
+        version++;
         if (boxesNeedingMoving.contains(box)) {
-            boxesNeedingMoving.remove(box);
+            boxesNeedingMoving = boxesNeedingMoving.remove(box);
+            allObstacleGrid.remove(box);
+            currentStillObstacleGrid.remove(box);
         }
     }
 
@@ -219,7 +242,11 @@ public class Workspace {
      * @param newPosition the new position of a moveable box
      */
     public void finishPush(Box newPosition) {
-        staticObstacles.add(newPosition);
+        version++;
+        staticObstacles = staticObstacles.add(newPosition);
+        staticObstacleGrid.add(newPosition);
+        currentStillObstacleGrid.add(newPosition);
+        allObstacleGrid.add(newPosition);
     }
 
     /**
@@ -228,8 +255,11 @@ public class Workspace {
      * @param box the box to push
      */
     public void pushGoalBox(MoveableBox box) {
+        version++;
         if (goalBoxes.contains(box)) {
-            goalBoxes.remove(box);
+            goalBoxes = goalBoxes.remove(box);
+            allObstacleGrid.remove(box);
+            currentStillObstacleGrid.remove(box);
         }
     }
 
@@ -238,7 +268,10 @@ public class Workspace {
      * @param newPosition the new position of a moveable box
      */
     public void finishPushGoalBox(MoveableBox newPosition) {
-        goalBoxes.add(newPosition);
+        version++;
+        goalBoxes = goalBoxes.add(newPosition);
+        currentStillObstacleGrid.add(newPosition);
+        allObstacleGrid.add(newPosition);
     }
 
     /**
@@ -247,6 +280,7 @@ public class Workspace {
      * @param robotWidth the robot width
      */
     public void setRobotWidth(double robotWidth) {
+        version++;
         this.robotWidth = robotWidth;
     }
 
@@ -260,42 +294,23 @@ public class Workspace {
     }
 
     /**
-     * Clone the workspace
+     * Get the number of modifications made to this version. Together with the instance itself,
+     * this identifies the state of the workspace.
+     *
+     * @return the modification count
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Clone the workspace. The clone shares all its obstacles with this version, and takes
+     * constant time.
      *
      * @return the cloned workspace
      */
     @Override
     protected Workspace clone() {
-        // Deep copy static obstacles
-        ArrayList<Box> newStaticObstacles = new ArrayList<>();
-
-        for (Box box : staticObstacles) {
-            newStaticObstacles.add(box.clone());
-        }
-
-        // Deep copy moveable obstacles
-        ArrayList<MoveableBox> newMoveableObstacles = new ArrayList<>();
-
-        for (MoveableBox box : moveableObstacles) {
-            newMoveableObstacles.add(box.clone());
-        }
-
-        // Deep copy goal boxes
-        ArrayList<MoveableBox> newGoalBoxes = new ArrayList<>();
-
-        for (MoveableBox box : goalBoxes) {
-            newGoalBoxes.add(box.clone());
-        }
-
-        // Deep copy boxes needing moving
-        ArrayList<MoveableBox> newBoxesNeedingMoving = new ArrayList<>();
-
-        for (MoveableBox box : boxesNeedingMoving) {
-            newBoxesNeedingMoving.add(box.clone());
-        }
-
-        return new Workspace(newStaticObstacles, newMoveableObstacles, newGoalBoxes,
-                newBoxesNeedingMoving, robotWidth
-        );
+        return new Workspace(this);
     }
 }
@@ -7,6 +7,11 @@ import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.IntPredicate;
+import java.util.function.Supplier;
 
 public class Tester {
     /** Maximum step size for a primitive step*/
@@ -18,17 +23,61 @@ public class Tester {
     private ProblemSpec ps;
     /** Maximum angle error when checking if robot is parallel to axis */
     private double angleError;
+    /** Whether to check the steps on several threads */
+    private boolean parallel = false;
+    /** Whether to only recheck the boxes that moved since the last step when checking collisions */
+    private boolean incremental = false;
+    /** Steps checked by each task when checking in parallel */
+    private static final int STEPS_PER_TASK = 1024;
+    /** Where the current thread's messages go while it checks part of the steps in parallel */
+    private final ThreadLocal<StringBuilder> output = new ThreadLocal<>();
+    /** The static obstacles, copied once rather than at every step */
+    private Rectangle2D[] staticObstacleRects;
+    /** The static obstacles shrunk by the maximum error, for checking the robot against */
+    private Rectangle2D[] shrunkStaticObstacleRects;
 
     public Tester(ProblemSpec ps){
         this.ps = ps;
         angleError = Math.asin((MAX_ERROR/2)/(ps.getRobotWidth()/2)) * 2;
+
+        List<StaticObstacle> staticObstacles = ps.getStaticObstacles() == null ?
+                Collections.emptyList() : ps.getStaticObstacles();
+        staticObstacleRects = new Rectangle2D[staticObstacles.size()];
+        shrunkStaticObstacleRects = new Rectangle2D[staticObstacles.size()];
+        for (int i = 0; i < staticObstacles.size(); i++) {
+            staticObstacleRects[i] = staticObstacles.get(i).getRect();
+            shrunkStaticObstacleRects[i] = grow(staticObstacleRects[i], -MAX_ERROR);
+        }
     }
 
     /**
      * Read problem and solution. Runs tests.
-     * @param args input file name for problem and solution
+     * @param args input file name for problem and solution. "--parallel" may follow to check the
+     *             steps on several threads, "--incremental" to only recheck the boxes that moved
+     *             at each step, "--stream" to check each step as it's read, and "--fail-fast" to
+     *             stream and stop at the first failure.
      */
     public static void main(String[] args) {
+        boolean parallel = false;
+        boolean incremental = false;
+        boolean stream = false;
+        boolean failFast = false;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--parallel")) {
+                parallel = true;
+            } else if (args[i].equals("--incremental")) {
+                incremental = true;
+            } else if (args[i].equals("--stream")) {
+                stream = true;
+            } else if (args[i].equals("--fail-fast")) {
+                stream = true;
+                failFast = true;
+            } else {
+                System.out.println("Invalid option: " + args[i]);
+                return;
+            }
+        }
+
         ProblemSpec ps = new ProblemSpec();
         try {
             ps.loadProblem(args[0]);
@@ -37,17 +86,117 @@ public class Tester {
             System.out.println(e1.getMessage());
             return;
         }
+        Tester tester = new Tester(ps);
+        tester.setParallel(parallel);
+        tester.setIncremental(incremental);
         try {
+            if (stream) {
+                tester.testSolutionStream(args[1], failFast);
+                return;
+            }
             ps.loadSolution(args[1]);
         } catch (IOException e1) {
             System.out.println("FAILED: Invalid solution file");
             System.out.println(e1.getMessage());
             return;
         }
-        Tester tester = new Tester(ps);
         tester.testSolution();
     }
 
+    /**
+     * Sets whether to check the steps on several threads. The messages are the same, and in the
+     * same order, either way.
+     * @param parallel whether to check in parallel
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Sets whether to only recheck the robot and the boxes that moved since the last step when
+     * checking collisions, rather than every box. The results are the same either way. Off by
+     * default, so the full check stays the reference.
+     * @param incremental whether to check incrementally
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    /**
+     * Prints a message about a step. While checking in parallel, it's kept until the steps before
+     * it have been reported.
+     * @param message the message
+     */
+    private void report(String message) {
+        StringBuilder out = output.get();
+        if (out != null) {
+            out.append(message).append(System.lineSeparator());
+        } else {
+            System.out.println(message);
+        }
+    }
+
+    /**
+     * Runs a check on each step in a range. Every step is checked, even after one fails.
+     * @param from the first step
+     * @param to the step after the last
+     * @param checker creates the check for a run of consecutive steps, returning true if a step
+     *                passed. Each run gets its own check, so it may remember earlier steps.
+     * @return true if every step passed
+     */
+    private boolean checkSteps(int from, int to, Supplier<IntPredicate> checker) {
+        boolean pass = true;
+
+        if (!parallel || to - from <= STEPS_PER_TASK) {
+            IntPredicate check = checker.get();
+            for (int i = from; i < to; i++) {
+                pass = check.test(i) && pass;
+            }
+            return pass;
+        }
+
+        // Each task keeps its messages, then they're printed in step order
+        List<Future<String>> tasks = new ArrayList<>();
+        boolean[] taskPassed = new boolean[(to - from + STEPS_PER_TASK - 1) / STEPS_PER_TASK];
+
+        for (int start = from; start < to; start += STEPS_PER_TASK) {
+            int task = tasks.size();
+            int taskStart = start;
+            int taskEnd = Math.min(start + STEPS_PER_TASK, to);
+
+            tasks.add(ForkJoinPool.commonPool().submit(() -> {
+                StringBuilder previous = output.get();
+                StringBuilder out = new StringBuilder();
+                output.set(out);
+                try {
+                    IntPredicate check = checker.get();
+                    boolean taskPass = true;
+                    for (int i = taskStart; i < taskEnd; i++) {
+                        taskPass = check.test(i) && taskPass;
+                    }
+                    taskPassed[task] = taskPass;
+                } finally {
+                    output.set(previous);
+                }
+                return out.toString();
+            }));
+        }
+
+        for (int task = 0; task < tasks.size(); task++) {
+            try {
+                System.out.print(tasks.get(task).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while checking steps", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Checking steps failed", e.getCause());
+            }
+            pass = taskPassed[task] && pass;
+        }
+
+        return pass;
+    }
+
     /**
      *  Runs all tests.
      */
@@ -86,6 +235,79 @@ public class Tester {
         return false;
     }
 
+    /**
+     * Runs all tests while reading the solution, checking each step as soon as it's read. Only the
+     * step being checked and the one before it are kept, so memory doesn't grow with the length of
+     * the solution. Steps are always checked one after another, even when checking in parallel.
+     * The failure messages are the same as testSolution's, but come in step order, followed by
+     * the result of each test. When stopped early, a test that hadn't failed yet is reported as
+     * passed only up to the step it stopped at, since the steps after it weren't checked.
+     * @param filename the solution file
+     * @param failFast whether to stop reading at the first step that fails
+     * @return true if all tests are passed and all boxes are in the correct location
+     * @throws IOException if the solution file can't be read
+     */
+    public boolean testSolutionStream(String filename, boolean failFast) throws IOException {
+        boolean initial = true;
+        boolean stepSize = true;
+        boolean collision = true;
+        boolean pushed = true;
+        int stoppedAt = -1;
+
+        try (SolutionReader input = ps.openSolution(filename, false)) {
+            CollisionState state = incremental ? new CollisionState() : null;
+            int steps = ps.getRobotPath().size();
+
+            for (int i = 0; i < steps; i++) {
+                ps.readSolutionStep(input, i);
+                if (i == 0) {
+                    initial = hasInitialFirst();
+                    if (!initial) {
+                        report("Solution path must start at initial state.");
+                    }
+                } else {
+                    stepSize = testStepSize(i) && stepSize;
+                }
+                collision = testCollision(i, state) && collision;
+                if (i > 0) {
+                    pushed = testPushedBox(i) && pushed;
+                }
+
+                if (failFast && !(initial && stepSize && collision && pushed)) {
+                    System.out.println("Stopped at step " + i);
+                    stoppedAt = i;
+                    break;
+                }
+            }
+        }
+
+        // The initial state is only at step 0, so it's always fully checked
+        System.out.println("Test Initial State: " + (initial ? "Passed" : "Failed"));
+        System.out.println("Test Step Size: " + streamResult(stepSize, stoppedAt));
+        System.out.println("Test collision: " + streamResult(collision, stoppedAt));
+        System.out.println("Test pushed objects: " + streamResult(pushed, stoppedAt));
+
+        if (initial && stepSize && collision && pushed) {
+            int count = countGoals();
+            System.out.println(count + " out of " + ps.getMovingBoxes().size() + " goals reached");
+            return count == ps.getMovingBoxes().size();
+        }
+        return false;
+    }
+
+    /**
+     * Describe the result of a test run while streaming a solution
+     * @param passed whether every step checked passed
+     * @param stoppedAt the step checking stopped at, or -1 if every step was checked
+     * @return the description
+     */
+    private static String streamResult(boolean passed, int stoppedAt) {
+        if (!passed) {
+            return "Failed";
+        }
+        return stoppedAt == -1 ? "Passed" : "Passed up to step " + stoppedAt;
+    }
+
     /**
      * Count the amount of goals reached.
      * @return amount of goals reached.
@@ -162,16 +384,7 @@ public class Tester {
     public boolean testStepSize() {
         System.out.println("Test Step Size");
         List<RobotConfig> robotPath = ps.getRobotPath();
-        RobotConfig last = robotPath.get(0);
-        boolean pass = true;
-
-        for (int i = 1; i < robotPath.size(); i++) {
-            if (!isValidStep(last, robotPath.get(i))) {
-                System.out.println("Step size over 0.001 at step " + i);
-                pass = false;
-            }
-            last = robotPath.get(i);
-        }
+        boolean pass = checkSteps(1, robotPath.size(), () -> this::testStepSize);
 
         if (pass) {
             System.out.println("Passed");
@@ -180,6 +393,20 @@ public class Tester {
         return pass;
     }
 
+    /**
+     * Test whether the step to a given step is less than the primitive step size
+     * @param i the step
+     * @return true or false
+     */
+    private boolean testStepSize(int i) {
+        List<RobotConfig> robotPath = ps.getRobotPath();
+        if (!isValidStep(robotPath.get(i - 1), robotPath.get(i))) {
+            report("Step size over 0.001 at step " + i);
+            return false;
+        }
+        return true;
+    }
+
     /**
      * Checks if the step size of the robot is valid from r1 to r2
      * @param r1 previous robot state
@@ -189,11 +416,11 @@ public class Tester {
 
     public boolean isValidStep(RobotConfig r1, RobotConfig r2) {
         if (getPoint1(r1).distance(getPoint1(r2)) > MAX_BASE_STEP + MAX_ERROR) {
-            System.out.println("Step size: " + getPoint1(r1).distance(getPoint1(r2)));
+            report("Step size: " + getPoint1(r1).distance(getPoint1(r2)));
             return false;
         }
         if (getPoint2(r1).distance(getPoint2(r2)) > MAX_BASE_STEP + MAX_ERROR) {
-            System.out.println("Step size: " + getPoint2(r1).distance(getPoint2(r2)));
+            report("Step size: " + getPoint2(r1).distance(getPoint2(r2)));
             return false;
         }
         return true;
@@ -226,44 +453,51 @@ public class Tester {
      */
     public boolean testPushedBox() {
         System.out.println("Test pushed objects");
-        boolean pass = true;
-        for (int i = 1; i < ps.getRobotPath().size(); i++) {
-            List<Box> oldMovingObjects = new ArrayList<Box>();
-            List<Box> newMovingObjects = new ArrayList<Box>();
-            oldMovingObjects.addAll(ps.getMovingBoxPath().get(i - 1));
-            oldMovingObjects.addAll(ps.getMovingObstaclePath().get(i - 1));
-            newMovingObjects.addAll(ps.getMovingBoxPath().get(i));
-            newMovingObjects.addAll(ps.getMovingObstaclePath().get(i));
-            int pushedBox = hasPushedBox(oldMovingObjects, newMovingObjects);
-
-            switch (pushedBox){
-                case -2: {
-                    pass = false;
-                    System.out.println("Multiple movable object moved at step" + i);
-                }
-                case -1 :continue;
-                default: {
-                    RobotConfig robot = ps.getRobotPath().get(i);
-                    RobotConfig oldRobot = ps.getRobotPath().get(i - 1);
-                    int direction = isCoupled(robot, newMovingObjects.get(pushedBox));
-                    if (direction == -1) {
-                        System.out.println("Robot not in pushing position but object moved at step " + i);
-                        pass = false;
-                    } else if (!testPushValidity(direction, oldRobot, robot, oldMovingObjects.get(pushedBox),
-                            newMovingObjects.get(pushedBox))) {
-                        System.out.println("Object not moving with robot" +
-                                " or pushed to wrong direction at step " + i);
-                        pass = false;
-                    }
-                }
-            }
-        }
+        boolean pass = checkSteps(1, ps.getRobotPath().size(), () -> this::testPushedBox);
         if (pass) {
             System.out.println("Passed");
         }
         return pass;
     }
 
+    /**
+     * Test whether the push, if any, to a given step is valid.
+     * @param i the step
+     * @return true or false
+     */
+    private boolean testPushedBox(int i) {
+        List<Box> oldMovingObjects = new ArrayList<Box>();
+        List<Box> newMovingObjects = new ArrayList<Box>();
+        oldMovingObjects.addAll(ps.getMovingBoxPath().get(i - 1));
+        oldMovingObjects.addAll(ps.getMovingObstaclePath().get(i - 1));
+        newMovingObjects.addAll(ps.getMovingBoxPath().get(i));
+        newMovingObjects.addAll(ps.getMovingObstaclePath().get(i));
+        int pushedBox = hasPushedBox(oldMovingObjects, newMovingObjects);
+
+        switch (pushedBox){
+            case -2: {
+                report("Multiple movable object moved at step" + i);
+                return false;
+            }
+            case -1 :return true;
+            default: {
+                RobotConfig robot = ps.getRobotPath().get(i);
+                RobotConfig oldRobot = ps.getRobotPath().get(i - 1);
+                int direction = isCoupled(robot, newMovingObjects.get(pushedBox));
+                if (direction == -1) {
+                    report("Robot not in pushing position but object moved at step " + i);
+                    return false;
+                } else if (!testPushValidity(direction, oldRobot, robot, oldMovingObjects.get(pushedBox),
+                        newMovingObjects.get(pushedBox))) {
+                    report("Object not moving with robot" +
+                            " or pushed to wrong direction at step " + i);
+                    return false;
+                }
+                return true;
+            }
+        }
+    }
+
     /**
      * Check if pushing from a given state to another state is valid.
      * @param direction the supposed direction of the push
@@ -284,9 +518,9 @@ public class Tester {
         double boxdx = newBox.getPos().getX() - oldBox.getPos().getX();
 
         if (Math.abs(robotdy - boxdy) > MAX_ERROR || Math.abs(robotdx - boxdx) > MAX_ERROR) {
-            System.out.println("Robot moving at different speed to box");
-            System.out.println("RobotSpeed: " + robotdx + "," + robotdy);
-            System.out.println("BoxSpeed: " + boxdx + "," + boxdy);
+            report("Robot moving at different speed to box");
+            report("RobotSpeed: " + robotdx + "," + robotdy);
+            report("BoxSpeed: " + boxdx + "," + boxdy);
             return false;
         }
         int actualDirection = 0;
@@ -436,30 +670,45 @@ public class Tester {
      */
     public boolean testCollision(){
         System.out.println("Test collision:");
+        boolean pass = checkSteps(0, ps.getRobotPath().size(), () -> {
+            CollisionState state = incremental ? new CollisionState() : null;
+            return i -> testCollision(i, state);
+        });
+        if (pass) {
+            System.out.println("Passed");
+        }
+        return pass;
+    }
+
+    /**
+     * Test if a given step contains collision
+     * @param i the step
+     * @param state what's known about the boxes from the last step checked, or null to check
+     *              every box
+     * @return true if passed
+     */
+    private boolean testCollision(int i, CollisionState state) {
         boolean pass = true;
-        for (int i = 0; i < ps.getRobotPath().size(); i++) {
-            List<Box> movingObjects = new ArrayList<Box>();
-            movingObjects.addAll(ps.getMovingBoxPath().get(i));
-            movingObjects.addAll(ps.getMovingObstaclePath().get(i));
-            RobotConfig robot = ps.getRobotPath().get(i);
-            if (!hasCollision(robot, movingObjects)) {
-                System.out.println("Collision at step " + i);
-                Robot robot1 = new Robot(robot.getPos(), robot.getOrientation(), ps.getRobotWidth());
-                ArrayList<solution.Box> obstacles= new ArrayList<>();
-                for(Box box: movingObjects) {
-                    solution.Box obstacle = new solution.Box(box.getRect());
-                    obstacles.add(obstacle);
-                }
-                System.out.println(robot1.isValid(obstacles));
-                pass = false;
-            }
-            if (!testGapSliding(robot, movingObjects)) {
-                System.out.println("Collision at step " + i);
-                pass = false;
+        List<Box> movingObjects = new ArrayList<Box>();
+        movingObjects.addAll(ps.getMovingBoxPath().get(i));
+        movingObjects.addAll(ps.getMovingObstaclePath().get(i));
+        RobotConfig robot = ps.getRobotPath().get(i);
+        boolean noCollision = state == null ? hasCollision(robot, movingObjects) :
+                hasCollision(robot, movingObjects, state);
+        if (!noCollision) {
+            report("Collision at step " + i);
+            Robot robot1 = new Robot(robot.getPos(), robot.getOrientation(), ps.getRobotWidth());
+            ArrayList<solution.Box> obstacles= new ArrayList<>();
+            for(Box box: movingObjects) {
+                solution.Box obstacle = new solution.Box(box.getRect());
+                obstacles.add(obstacle);
             }
+            report(String.valueOf(robot1.isValid(obstacles)));
+            pass = false;
         }
-        if (pass) {
-            System.out.println("Passed");
+        if (!testGapSliding(robot, movingObjects)) {
+            report("Collision at step " + i);
+            pass = false;
         }
         return pass;
     }
@@ -535,48 +784,238 @@ public class Tester {
      * @return true if no collision
      */
     public boolean hasCollision(RobotConfig r, List<Box> movingObjects) {
-
         Line2D robotLine = new Line2D.Double(getPoint1(r), getPoint2(r));
+        if (!isRobotClear(robotLine)) {
+            return false;
+        }
+
         Rectangle2D border = new Rectangle2D.Double(0,0,1,1);
-        for (StaticObstacle o: ps.getStaticObstacles()) {
-            if (robotLine.intersects(grow(o.getRect(), -MAX_ERROR))) {
-                System.out.println("Static obstacle collision");
+        Rectangle2D[] rects = new Rectangle2D[movingObjects.size()];
+        for (int i = 0; i < rects.length; i++) {
+            rects[i] = movingObjects.get(i).getRect();
+        }
+        boolean[] collided = findCollidedBoxes(rects);
+
+        for (int i = 0; i < rects.length; i++) {
+
+            if (!border.contains(rects[i])) {
+                report("Box outside of border");
+                return false;
+            }
+
+            Rectangle2D collisionBox = grow(rects[i],-MAX_ERROR);
+            if (collisionBox.intersectsLine(robotLine)) {
+                report("Moving obstacle collision");
+                return false;
+            }
+
+            if (collided[i]) {
+                report("Moving obstacles collided");
                 return false;
             }
+
+            for (Rectangle2D o: staticObstacleRects) {
+                if (collisionBox.intersects(o)) {
+                    report("Static obstacle collided with moving obstacle");
+                    return false;
+                }
+            }
         }
+        return true;
+    }
 
-        if (!border.contains(robotLine.getP1()) || !border.contains(robotLine.getP2())) {
-            System.out.println("Robot outside of border");
+    /**
+     * Check if a given state contains collision, only rechecking the boxes that moved since the
+     * last state checked with the same collision state. Gives the same result and message as
+     * checking every box.
+     * @param r state of robot
+     * @param movingObjects state of all movable objects
+     * @param state what's known about the boxes from the last state checked. It's updated to this
+     *              state.
+     * @return true if no collision
+     */
+    private boolean hasCollision(RobotConfig r, List<Box> movingObjects, CollisionState state) {
+        state.update(movingObjects);
+
+        Line2D robotLine = new Line2D.Double(getPoint1(r), getPoint2(r));
+        if (!isRobotClear(robotLine)) {
             return false;
         }
 
-        for (Box b1: movingObjects) {
+        for (int i = 0; i < state.rects.length; i++) {
+            if (state.outsideBorder[i]) {
+                report("Box outside of border");
+                return false;
+            }
 
-            if (!border.contains(b1.getRect())) {
-                System.out.println("Box outside of border");
+            if (state.shrunkRects[i].intersectsLine(robotLine)) {
+                report("Moving obstacle collision");
                 return false;
             }
 
-            Rectangle2D collisionBox = grow(b1.getRect(),-MAX_ERROR);
-            if (collisionBox.intersectsLine(robotLine)) {
-                System.out.println("Moving obstacle collision");
+            if (state.collisions[i] > 0) {
+                report("Moving obstacles collided");
                 return false;
             }
 
-            for (Box b2: movingObjects) {
-                if ((!b1.equals(b2)) && (collisionBox.intersects(b2.getRect()))) {
-                    System.out.println("Moving obstacles collided");
-                    return false;
+            if (state.hitsStaticObstacle[i]) {
+                report("Static obstacle collided with moving obstacle");
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check the robot doesn't hit a static obstacle or leave the border
+     * @param robotLine the robot
+     * @return true if no collision
+     */
+    private boolean isRobotClear(Line2D robotLine) {
+        Rectangle2D border = new Rectangle2D.Double(0,0,1,1);
+        for (Rectangle2D o: shrunkStaticObstacleRects) {
+            if (robotLine.intersects(o)) {
+                report("Static obstacle collision");
+                return false;
+            }
+        }
+
+        if (!border.contains(robotLine.getP1()) || !border.contains(robotLine.getP2())) {
+            report("Robot outside of border");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Find the boxes that collide with another box. A box collides with another if, shrunk by the
+     * maximum error, it intersects the other. The boxes are swept along the x axis, so only pairs
+     * that overlap in x are compared.
+     * @param rects the boxes
+     * @return whether each box collides with another
+     */
+    private boolean[] findCollidedBoxes(Rectangle2D[] rects) {
+        boolean[] collided = new boolean[rects.length];
+
+        // Sort by left edge. The boxes are few and barely move between steps.
+        int[] order = new int[rects.length];
+        for (int i = 0; i < rects.length; i++) {
+            int j = i;
+            for (; j > 0 && rects[order[j - 1]].getMinX() > rects[i].getMinX(); j--) {
+                order[j] = order[j - 1];
+            }
+            order[j] = i;
+        }
+
+        for (int a = 0; a < order.length; a++) {
+            Rectangle2D r1 = rects[order[a]];
+
+            // Boxes starting at or after this one's right edge can't overlap it, or any after it
+            for (int b = a + 1; b < order.length && rects[order[b]].getMinX() < r1.getMaxX(); b++) {
+                Rectangle2D r2 = rects[order[b]];
+                if (r1.equals(r2)) {
+                    continue;
+                }
+                if (grow(r1, -MAX_ERROR).intersects(r2)) {
+                    collided[order[a]] = true;
+                }
+                if (grow(r2, -MAX_ERROR).intersects(r1)) {
+                    collided[order[b]] = true;
                 }
             }
+        }
 
-            for (StaticObstacle o: ps.getStaticObstacles()) {
-                if (collisionBox.intersects(o.getRect())) {
-                    System.out.println("Static obstacle collided with moving obstacle");
-                    return false;
+        return collided;
+    }
+
+    /**
+     * What's known about the boxes at the last step checked: whether each is inside the border
+     * and clear of the static obstacles, and how many other boxes it collides with. At most one
+     * box moves between steps, so only the boxes that moved are rechecked.
+     */
+    private class CollisionState {
+        /** The boxes */
+        private Rectangle2D[] rects;
+        /** The boxes shrunk by the maximum error */
+        private Rectangle2D[] shrunkRects;
+        /** Whether each box is outside the border */
+        private boolean[] outsideBorder;
+        /** Whether each box hits a static obstacle */
+        private boolean[] hitsStaticObstacle;
+        /** The number of other boxes each box collides with */
+        private int[] collisions;
+
+        /**
+         * Update to a new state, rechecking the boxes that moved
+         * @param movingObjects state of all movable objects
+         */
+        private void update(List<Box> movingObjects) {
+            int n = movingObjects.size();
+            Rectangle2D[] newRects = new Rectangle2D[n];
+            for (int i = 0; i < n; i++) {
+                newRects[i] = movingObjects.get(i).getRect();
+            }
+
+            if (rects == null || rects.length != n) {
+                // Nothing to carry forward, so everything has moved
+                rects = new Rectangle2D[n];
+                shrunkRects = new Rectangle2D[n];
+                outsideBorder = new boolean[n];
+                hitsStaticObstacle = new boolean[n];
+                collisions = new int[n];
+            }
+
+            boolean[] moved = new boolean[n];
+            for (int i = 0; i < n; i++) {
+                moved[i] = rects[i] == null || !rects[i].equals(newRects[i]);
+            }
+
+            // Take away the collisions the moved boxes had, then add the ones they have now
+            countMovedPairs(moved, -1);
+            Rectangle2D border = new Rectangle2D.Double(0,0,1,1);
+            for (int i = 0; i < n; i++) {
+                if (moved[i]) {
+                    rects[i] = newRects[i];
+                    shrunkRects[i] = grow(rects[i], -MAX_ERROR);
+                    outsideBorder[i] = !border.contains(rects[i]);
+                    hitsStaticObstacle[i] = false;
+                    for (Rectangle2D o: staticObstacleRects) {
+                        if (shrunkRects[i].intersects(o)) {
+                            hitsStaticObstacle[i] = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            countMovedPairs(moved, 1);
+        }
+
+        /**
+         * Add the collisions between each moved box and every other box to the counts
+         * @param moved whether each box moved
+         * @param sign 1 to add the collisions, -1 to take them away
+         */
+        private void countMovedPairs(boolean[] moved, int sign) {
+            for (int i = 0; i < rects.length; i++) {
+                if (!moved[i] || rects[i] == null) {
+                    continue;
+                }
+                for (int j = 0; j < rects.length; j++) {
+                    // Count pairs of moved boxes once
+                    if (j == i || rects[j] == null || (moved[j] && j < i)) {
+                        continue;
+                    }
+                    if (rects[i].equals(rects[j])) {
+                        continue;
+                    }
+                    if (shrunkRects[i].intersects(rects[j])) {
+                        collisions[i] += sign;
+                    }
+                    if (shrunkRects[j].intersects(rects[i])) {
+                        collisions[j] += sign;
+                    }
                 }
             }
         }
-        return true;
     }
 }